@@ -18,35 +18,52 @@ package net.zionsoft.auto.droid;
 
 import com.google.auto.service.AutoService;
 import com.google.auto.value.extension.AutoValueExtension;
+import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
 
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
-import javax.lang.model.element.AnnotationMirror;
-import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 
 @AutoService(AutoValueExtension.class)
 public class AutoValueCursorExtension extends AutoValueExtension {
     private static final TypeName CONTENT_VALUES = ClassName.get("android.content", "ContentValues");
     private static final TypeName CURSOR_VALUES = ClassName.get("android.database", "Cursor");
+    private static final TypeName SQLITE_DATABASE = ClassName.get("android.database.sqlite", "SQLiteDatabase");
+    private static final TypeName SQLITE_STATEMENT = ClassName.get("android.database.sqlite", "SQLiteStatement");
+    private static final String CURSOR_MAPPER = "CursorMapper";
+    private static final String CURSOR_ITERATOR = "CursorIterator";
+    private static final String CURSOR_VIEW = "CursorView";
+    private static final String COLUMNS = "Columns";
+    private static final String CURSOR_LIST = "CursorList";
+    private static final String LRU_CACHE = "LruCache";
 
     @Override
     public boolean applicable(Context context) {
@@ -56,11 +73,24 @@ public class AutoValueCursorExtension extends AutoValueExtension {
 
     @Override
     public Set<ExecutableElement> consumeMethods(Context context) {
-        final ExecutableElement method = findToContentValues(context.autoValueClass());
-        if (method != null) {
-            return Collections.singleton(method);
+        final Set<ExecutableElement> methods = new HashSet<>();
+        final ExecutableElement toContentValues = findToContentValues(context.autoValueClass());
+        if (toContentValues != null) {
+            methods.add(toContentValues);
         }
-        return super.consumeMethods(context);
+        final ExecutableElement bindTo = findBindTo(context.autoValueClass());
+        if (bindTo != null) {
+            methods.add(bindTo);
+        }
+        final ExecutableElement toChangedContentValues = findToChangedContentValues(context.autoValueClass());
+        if (toChangedContentValues != null) {
+            methods.add(toChangedContentValues);
+        }
+        final ExecutableElement diff = findDiff(context.autoValueClass());
+        if (diff != null) {
+            methods.add(diff);
+        }
+        return methods;
     }
 
     private static ExecutableElement findToContentValues(TypeElement cls) {
@@ -88,6 +118,71 @@ public class AutoValueCursorExtension extends AutoValueExtension {
         return null;
     }
 
+    private static ExecutableElement findBindTo(TypeElement cls) {
+        for (Element element : cls.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            final ExecutableElement executableElement = (ExecutableElement) element;
+            if (!executableElement.getModifiers().contains(Modifier.ABSTRACT)
+                    || executableElement.getReturnType().getKind() != TypeKind.VOID) {
+                continue;
+            }
+
+            final List<? extends VariableElement> parameters = executableElement.getParameters();
+            if (parameters.size() == 1 && SQLITE_STATEMENT.equals(ClassName.get(parameters.get(0).asType()))) {
+                return executableElement;
+            }
+        }
+        return null;
+    }
+
+    private static ExecutableElement findToChangedContentValues(TypeElement cls) {
+        final TypeName autoValueType = TypeName.get(cls.asType());
+        for (Element element : cls.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            final ExecutableElement executableElement = (ExecutableElement) element;
+            if (!executableElement.getModifiers().contains(Modifier.ABSTRACT)
+                    || !CONTENT_VALUES.equals(ClassName.get(executableElement.getReturnType()))) {
+                continue;
+            }
+
+            final List<? extends VariableElement> parameters = executableElement.getParameters();
+            if (parameters.size() == 1 && autoValueType.equals(TypeName.get(parameters.get(0).asType()))) {
+                return executableElement;
+            }
+        }
+        return null;
+    }
+
+    private static ExecutableElement findDiff(TypeElement cls) {
+        final TypeName autoValueType = TypeName.get(cls.asType());
+        for (Element element : cls.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            final ExecutableElement executableElement = (ExecutableElement) element;
+            if (!executableElement.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            final TypeKind returnType = executableElement.getReturnType().getKind();
+            if (returnType != TypeKind.LONG && returnType != TypeKind.INT) {
+                continue;
+            }
+
+            final List<? extends VariableElement> parameters = executableElement.getParameters();
+            if (parameters.size() == 1 && autoValueType.equals(TypeName.get(parameters.get(0).asType()))) {
+                return executableElement;
+            }
+        }
+        return null;
+    }
+
     @Override
     public String generateClass(Context context, String className, String classToExtend, boolean isFinal) {
         final String packageName = context.packageName();
@@ -95,22 +190,213 @@ public class AutoValueCursorExtension extends AutoValueExtension {
         final TypeSpec.Builder builder = TypeSpec.classBuilder(className)
                 .addModifiers(isFinal ? Modifier.FINAL : Modifier.ABSTRACT)
                 .superclass(ClassName.get(packageName, classToExtend))
+                .addField(generateProjectionField(properties))
                 .addMethod(Utils.generateConstructor(properties))
-                .addMethod(generateFactoryMethod(context, properties));
+                .addMethod(generateFactoryMethod(context));
+        // adapters look up their own columns by name, which might not be in PROJECTION
+        if (!Utils.containsAnnotation(context, ColumnAdapter.class)) {
+            builder.addMethod(generateProjectedFactoryMethod(context, properties));
+        }
+        builder.addMethod(generateListFactoryMethod(context))
+                .addMethod(generateArrayFactoryMethod(context))
+                .addType(generateCursorMapper(context, properties));
+        if (context.autoValueClass().getAnnotation(CursorBackedView.class) != null) {
+            final TypeSpec cursorView = generateCursorView(context, properties);
+            if (cursorView != null) {
+                builder.addType(cursorView);
+            }
+        }
+        if (context.autoValueClass().getAnnotation(ColumnarCursor.class) != null) {
+            builder.addType(generateColumns(context, properties));
+        }
+        if (context.autoValueClass().getAnnotation(LazyCursorList.class) != null) {
+            builder.addMethod(generateLazyListFactoryMethod(context))
+                    .addType(generateCursorList(context));
+        }
+        if (context.autoValueClass().getAnnotation(IterableCursor.class) != null) {
+            builder.addMethod(generateIterableFactoryMethod(context))
+                    .addType(generateCursorIterator(context));
+        }
         final MethodSpec toContentValuesMethod = generateToContentValuesMethod(context, properties);
         if (toContentValuesMethod != null) {
             builder.addMethod(toContentValuesMethod);
         }
+        final MethodSpec insertAllMethod = generateInsertAllMethod(context, properties);
+        if (insertAllMethod != null) {
+            builder.addMethod(insertAllMethod);
+        }
+        final TableName tableName = context.autoValueClass().getAnnotation(TableName.class);
+        if (tableName != null) {
+            builder.addField(generateInsertSqlField(tableName.value(), properties))
+                    .addField(generateUpdateSqlField(tableName.value(), properties));
+        }
+        final MethodSpec bindToMethod = generateBindToMethod(context, properties);
+        if (bindToMethod != null) {
+            builder.addMethod(bindToMethod);
+        }
+        final MethodSpec toChangedContentValuesMethod = generateToChangedContentValuesMethod(context, properties);
+        if (toChangedContentValuesMethod != null) {
+            builder.addMethod(toChangedContentValuesMethod);
+        }
+        final MethodSpec diffMethod = generateDiffMethod(context, properties);
+        if (diffMethod != null) {
+            builder.addMethod(diffMethod);
+        }
         return JavaFile.builder(packageName, builder.build()).build().toString();
     }
 
-    private static MethodSpec generateFactoryMethod(Context context, Map<String, ExecutableElement> properties) {
-        final MethodSpec.Builder factoryMethod = MethodSpec.methodBuilder("createFromCursor")
+    private static MethodSpec generateFactoryMethod(Context context) {
+        final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
+        return MethodSpec.methodBuilder("createFromCursor")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(CURSOR_VALUES, "cursor")
+                .returns(ClassName.get(context.packageName(), classSimpleName))
+                .addStatement("return $N.of(cursor).map(cursor)", CURSOR_MAPPER)
+                .build();
+    }
+
+    private static List<String> findColumnNames(Map<String, ExecutableElement> properties) {
+        final List<String> columnNames = new ArrayList<>();
+        for (ExecutableElement element : properties.values()) {
+            final ColumnName columnName = element.getAnnotation(ColumnName.class);
+            if (columnName != null && element.getAnnotation(ColumnAdapter.class) == null) {
+                columnNames.add(columnName.value());
+            }
+        }
+        return columnNames;
+    }
+
+    private static FieldSpec generateProjectionField(Map<String, ExecutableElement> properties) {
+        final CodeBlock.Builder initializer = CodeBlock.builder().add("{");
+        boolean first = true;
+        for (String columnName : findColumnNames(properties)) {
+            initializer.add(first ? "$S" : ", $S", columnName);
+            first = false;
+        }
+        return FieldSpec.builder(ArrayTypeName.of(String.class), "PROJECTION",
+                Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer(initializer.add("}").build())
+                .build();
+    }
+
+    private static MethodSpec generateProjectedFactoryMethod(Context context,
+                                                             Map<String, ExecutableElement> properties) {
+        final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
+        final MethodSpec.Builder factoryMethod = MethodSpec.methodBuilder("createFromProjectedCursor")
                 .addModifiers(Modifier.STATIC)
-                .addParameter(ClassName.get("android.database", "Cursor"), "cursor");
+                .addParameter(CURSOR_VALUES, "cursor")
+                .returns(ClassName.get(context.packageName(), classSimpleName));
+
+        // columns are read at their position in PROJECTION, errors are reported by generateCursorMapper()
+        int index = 0;
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            final TypeName typeName = TypeName.get(element.getReturnType());
+            final TypeName columnType = columnType(typeName);
+            if (element.getAnnotation(ColumnName.class) == null) {
+                factoryMethod.addStatement("$T $N = $L", columnType, name, defaultValue(columnType));
+                continue;
+            }
+
+            final String getter = cursorGetter(typeName);
+            if (getter != null) {
+                factoryMethod.addStatement("$T $N = cursor.$N($L)", columnType, name, getter, index);
+            }
+            ++index;
+        }
 
+        return factoryMethod.addCode("return ")
+                .addCode(Utils.generateObjectConstruction(classSimpleName, properties))
+                .build();
+    }
+
+    private static MethodSpec generateListFactoryMethod(Context context) {
+        final TypeName autoValueType = TypeName.get(context.autoValueClass().asType());
+        final TypeName listType = ParameterizedTypeName.get(ClassName.get(List.class), autoValueType);
+        return MethodSpec.methodBuilder("listFromCursor")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(CURSOR_VALUES, "cursor")
+                .returns(listType)
+                .addStatement("$T list = new $T<>(cursor.getCount())", listType, ClassName.get(ArrayList.class))
+                .addStatement("$N mapper = $N.of(cursor)", CURSOR_MAPPER, CURSOR_MAPPER)
+                .addStatement("cursor.moveToPosition(-1)")
+                .beginControlFlow("while (cursor.moveToNext())")
+                .addStatement("list.add(mapper.map(cursor))")
+                .endControlFlow()
+                .addStatement("return list")
+                .build();
+    }
+
+    private static MethodSpec generateArrayFactoryMethod(Context context) {
+        final TypeName autoValueType = TypeName.get(context.autoValueClass().asType());
+        final TypeName arrayType = ArrayTypeName.of(autoValueType);
+        return MethodSpec.methodBuilder("arrayFromCursor")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(CURSOR_VALUES, "cursor")
+                .returns(arrayType)
+                .addStatement("$T array = new $T[cursor.getCount()]", arrayType, autoValueType)
+                .addStatement("$N mapper = $N.of(cursor)", CURSOR_MAPPER, CURSOR_MAPPER)
+                .addStatement("cursor.moveToPosition(-1)")
+                .beginControlFlow("for (int i = 0; cursor.moveToNext(); ++i)")
+                .addStatement("array[i] = mapper.map(cursor)")
+                .endControlFlow()
+                .addStatement("return array")
+                .build();
+    }
+
+    private static MethodSpec generateIterableFactoryMethod(Context context) {
+        final TypeName autoValueType = TypeName.get(context.autoValueClass().asType());
+        final TypeName iterableType = ParameterizedTypeName.get(ClassName.get(Iterable.class), autoValueType);
+        final TypeName iteratorType = ParameterizedTypeName.get(ClassName.get(Iterator.class), autoValueType);
+        // single use, as the cursor is closed after the first pass
+        final TypeSpec iterable = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(iterableType)
+                .addField(TypeName.BOOLEAN, "iterated", Modifier.PRIVATE)
+                .addMethod(MethodSpec.methodBuilder("iterator")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(iteratorType)
+                        .beginControlFlow("if (iterated)")
+                        .addStatement("throw new $T($S)", IllegalStateException.class,
+                                "iterableFromCursor() can only be iterated once")
+                        .endControlFlow()
+                        .addStatement("iterated = true")
+                        .addStatement("return new $N(cursor)", CURSOR_ITERATOR)
+                        .build())
+                .build();
+        return MethodSpec.methodBuilder("iterableFromCursor")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(CURSOR_VALUES, "cursor", Modifier.FINAL)
+                .returns(iterableType)
+                .addStatement("return $L", iterable)
+                .build();
+    }
+
+    private static MethodSpec generateLazyListFactoryMethod(Context context) {
+        final TypeName autoValueType = TypeName.get(context.autoValueClass().asType());
+        return MethodSpec.methodBuilder("lazyListFromCursor")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(CURSOR_VALUES, "cursor")
+                .addParameter(TypeName.INT, "cacheSize")
+                .returns(ParameterizedTypeName.get(ClassName.get(List.class), autoValueType))
+                .addStatement("return new $N(cursor, cacheSize)", CURSOR_LIST)
+                .build();
+    }
+
+    private static TypeSpec generateCursorMapper(Context context, Map<String, ExecutableElement> properties) {
         final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
-        factoryMethod.returns(ClassName.get(context.packageName(), classSimpleName));
+        final TypeName classType = ClassName.get(context.packageName(), classSimpleName);
+        final TypeName mapperType = ClassName.get("", CURSOR_MAPPER);
+
+        final TypeSpec.Builder mapper = TypeSpec.classBuilder(CURSOR_MAPPER)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL);
+        final MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(CURSOR_VALUES, "cursor");
+        final MethodSpec.Builder mapMethod = MethodSpec.methodBuilder("map")
+                .addParameter(CURSOR_VALUES, "cursor")
+                .returns(classType);
 
         for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
             final String name = entry.getKey();
@@ -135,89 +421,394 @@ public class AutoValueCursorExtension extends AutoValueExtension {
                             context.autoValueClass());
                     continue;
                 }
-                factoryMethod.addStatement("$T $N = $T.$N(cursor)", typeName, name, adapterType,
+                mapMethod.addStatement("$T $N = $T.$N(cursor)", typeName, name, adapterType,
                         adapterFactoryMethod.getSimpleName().toString());
 
                 continue;
             }
 
+            final TypeName columnType = columnType(typeName);
             final ColumnName columnName = element.getAnnotation(ColumnName.class);
             if (columnName == null) {
                 // not annotated, use default value
-                if (typeName.equals(ArrayTypeName.of(TypeName.BYTE))) {
-                    factoryMethod.addStatement("byte[] $N = null", name);
-                } else if (typeName.equals(TypeName.DOUBLE) || typeName.equals(TypeName.DOUBLE.box())) {
-                    factoryMethod.addStatement("double $N = 0.0", name);
-                } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
-                    factoryMethod.addStatement("float $N = 0.0F", name);
-                } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
-                    factoryMethod.addStatement("int $N = 0", name);
-                } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
-                    factoryMethod.addStatement("long $N = 0L", name);
-                } else if (typeName.equals(TypeName.SHORT) || typeName.equals(TypeName.SHORT.box())) {
-                    factoryMethod.addStatement("short $N = 0", name);
-                } else {
-                    factoryMethod.addStatement("$T $N = null", typeName, name);
-                }
-            } else {
-                final String key = columnName.value();
-                if (typeName.equals(ArrayTypeName.of(TypeName.BYTE))) {
-                    factoryMethod.addStatement("byte[] $N = cursor.getBlob(cursor.getColumnIndexOrThrow($S))",
-                            name, key);
-                } else if (typeName.equals(TypeName.DOUBLE) || typeName.equals(TypeName.DOUBLE.box())) {
-                    factoryMethod.addStatement("double $N = cursor.getDouble(cursor.getColumnIndexOrThrow($S))",
-                            name, key);
-                } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
-                    factoryMethod.addStatement("float $N = cursor.getFloat(cursor.getColumnIndexOrThrow($S))",
-                            name, key);
-                } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
-                    factoryMethod.addStatement("int $N = cursor.getInt(cursor.getColumnIndexOrThrow($S))",
-                            name, key);
-                } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
-                    factoryMethod.addStatement("long $N = cursor.getLong(cursor.getColumnIndexOrThrow($S))",
-                            name, key);
-                } else if (typeName.equals(TypeName.SHORT) || typeName.equals(TypeName.SHORT.box())) {
-                    factoryMethod.addStatement("short $N = cursor.getShort(cursor.getColumnIndexOrThrow($S))",
-                            name, key);
-                } else if (typeName.equals(TypeName.get(String.class))) {
-                    factoryMethod.addStatement("String $N = cursor.getString(cursor.getColumnIndexOrThrow($S))",
-                            name, key);
-                } else {
-                    context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
-                            "Unsupported type: " + typeName.toString(), context.autoValueClass());
-                }
+                mapMethod.addStatement("$T $N = $L", columnType, name, defaultValue(columnType));
+                continue;
             }
+
+            final String getter = cursorGetter(typeName);
+            if (getter == null) {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unsupported type: " + typeName.toString(), context.autoValueClass());
+                continue;
+            }
+
+            final String index = name + "Index";
+            mapper.addField(TypeName.INT, index, Modifier.PRIVATE, Modifier.FINAL);
+            constructor.addStatement("$N = cursor.getColumnIndexOrThrow($S)", index, columnName.value());
+            mapMethod.addStatement("$T $N = cursor.$N($N)", columnType, name, getter, index);
         }
 
-        factoryMethod.addCode("return ")
+        mapMethod.addCode("return ")
                 .addCode(Utils.generateObjectConstruction(classSimpleName, properties));
 
-        return factoryMethod.build();
+        return mapper.addMethod(constructor.build())
+                .addMethod(MethodSpec.methodBuilder("of")
+                        .addModifiers(Modifier.STATIC)
+                        .addParameter(CURSOR_VALUES, "cursor")
+                        .returns(mapperType)
+                        .addStatement("return new $T(cursor)", mapperType)
+                        .build())
+                .addMethod(mapMethod.build())
+                .build();
     }
 
-    private static TypeMirror findAdapterType(ExecutableElement element) {
-        final String className = ColumnAdapter.class.getName();
-        AnnotationMirror annotationMirror = null;
-        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
-            if (mirror.getAnnotationType().toString().equals(className)) {
-                annotationMirror = mirror;
-                break;
+    private static TypeSpec generateCursorIterator(Context context) {
+        final TypeName autoValueType = TypeName.get(context.autoValueClass().asType());
+        return TypeSpec.classBuilder(CURSOR_ITERATOR)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .addSuperinterface(ParameterizedTypeName.get(ClassName.get(Iterator.class), autoValueType))
+                .addField(CURSOR_VALUES, "cursor", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(ClassName.get("", CURSOR_MAPPER), "mapper", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(TypeName.BOOLEAN, "hasNext", Modifier.PRIVATE)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(CURSOR_VALUES, "cursor")
+                        .addStatement("this.cursor = cursor")
+                        .addStatement("this.mapper = $N.of(cursor)", CURSOR_MAPPER)
+                        .addStatement("advance(cursor.moveToFirst())")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("advance")
+                        .addModifiers(Modifier.PRIVATE)
+                        .addParameter(TypeName.BOOLEAN, "moved")
+                        .addStatement("hasNext = moved")
+                        .beginControlFlow("if (!moved)")
+                        .addStatement("cursor.close()")
+                        .endControlFlow()
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("hasNext")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(TypeName.BOOLEAN)
+                        .addStatement("return hasNext")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("next")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(autoValueType)
+                        .beginControlFlow("if (!hasNext)")
+                        .addStatement("throw new $T()", NoSuchElementException.class)
+                        .endControlFlow()
+                        .addStatement("$T next = mapper.map(cursor)", autoValueType)
+                        .addStatement("advance(cursor.moveToNext())")
+                        .addStatement("return next")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("remove")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addStatement("throw new $T()", UnsupportedOperationException.class)
+                        .build())
+                .build();
+    }
+
+    private static TypeSpec generateCursorView(Context context, Map<String, ExecutableElement> properties) {
+        for (ExecutableElement element : properties.values()) {
+            if ("snapshot".equals(element.getSimpleName().toString())) {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@CursorBackedView does not support a property named `snapshot()`", element);
+                return null;
             }
         }
-        if (annotationMirror == null) {
-            return null;
+
+        final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
+        final TypeSpec.Builder view = TypeSpec.classBuilder(CURSOR_VIEW)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .superclass(TypeName.get(context.autoValueClass().asType()))
+                .addField(CURSOR_VALUES, "cursor", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(ClassName.get("", CURSOR_MAPPER), "mapper", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(CURSOR_VALUES, "cursor")
+                        .addStatement("this.cursor = cursor")
+                        .addStatement("this.mapper = $N.of(cursor)", CURSOR_MAPPER)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("moveToPosition")
+                        .addParameter(TypeName.INT, "position")
+                        .returns(TypeName.BOOLEAN)
+                        .addStatement("return cursor.moveToPosition(position)")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("snapshot")
+                        .returns(ClassName.get(context.packageName(), classSimpleName))
+                        .addStatement("return mapper.map(cursor)")
+                        .build());
+
+        // errors are reported by generateCursorMapper()
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final ExecutableElement element = entry.getValue();
+            final TypeName typeName = TypeName.get(element.getReturnType());
+            final MethodSpec.Builder accessor = MethodSpec.overriding(element);
+
+            if (element.getAnnotation(ColumnAdapter.class) != null) {
+                final TypeMirror adapterType = findAdapterType(element);
+                final ExecutableElement adapterFactoryMethod
+                        = adapterType != null ? findAdapterFactoryMethod(context, adapterType) : null;
+                if (adapterFactoryMethod != null) {
+                    accessor.addStatement("return $T.$N(cursor)", adapterType,
+                            adapterFactoryMethod.getSimpleName().toString());
+                    view.addMethod(accessor.build());
+                }
+                continue;
+            }
+
+            if (element.getAnnotation(ColumnName.class) == null) {
+                accessor.addStatement("return $L", defaultValue(columnType(typeName)));
+                view.addMethod(accessor.build());
+                continue;
+            }
+
+            final String getter = cursorGetter(typeName);
+            if (getter != null) {
+                accessor.addStatement("return cursor.$N(mapper.$N)", getter, entry.getKey() + "Index");
+                view.addMethod(accessor.build());
+            }
+        }
+
+        for (ExecutableElement method : Utils.findNonPropertyAbstractMethods(context)) {
+            view.addMethod(Utils.generateDelegatingMethod(context, method, "snapshot()"));
         }
 
-        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
-                : annotationMirror.getElementValues().entrySet()) {
-            if (entry.getKey().getSimpleName().toString().equals("value")) {
-                return (TypeMirror) entry.getValue().getValue();
+        // compares the current row, so that a view and its snapshot are equal both ways
+        return view.addMethod(MethodSpec.methodBuilder("equals")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addParameter(Object.class, "o")
+                .returns(TypeName.BOOLEAN)
+                .addStatement("return snapshot().equals(o)")
+                .build())
+                .addMethod(MethodSpec.methodBuilder("hashCode")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(TypeName.INT)
+                        .addStatement("return snapshot().hashCode()")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("toString")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(String.class)
+                        .addStatement("return snapshot().toString()")
+                        .build())
+                .build();
+    }
+
+    private static TypeSpec generateColumns(Context context, Map<String, ExecutableElement> properties) {
+        final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
+        final Types types = context.processingEnvironment().getTypeUtils();
+        final TypeName columnsType = ClassName.get("", COLUMNS);
+        final TypeSpec.Builder columns = TypeSpec.classBuilder(COLUMNS)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .addField(TypeName.INT, "size", Modifier.PRIVATE, Modifier.FINAL);
+        final MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(TypeName.INT, "size")
+                .addStatement("this.size = size");
+        final MethodSpec.Builder fromCursor = MethodSpec.methodBuilder("fromCursor")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(CURSOR_VALUES, "cursor")
+                .returns(columnsType)
+                .addStatement("$T columns = new $T(cursor.getCount())", columnsType, columnsType)
+                .addStatement("$N mapper = $N.of(cursor)", CURSOR_MAPPER, CURSOR_MAPPER)
+                .addStatement("cursor.moveToPosition(-1)")
+                .beginControlFlow("for (int i = 0; cursor.moveToNext(); ++i)");
+        // values are passed without locals, and the arrays are suffixed, so that no property clashes with "size"
+        final CodeBlock.Builder getArguments = CodeBlock.builder();
+        boolean first = true;
+        boolean unchecked = false;
+
+        // errors are reported by generateCursorMapper()
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            final TypeName typeName = TypeName.get(element.getReturnType());
+
+            final CodeBlock value;
+            final TypeName columnType;
+            final TypeName erasedType;
+            if (element.getAnnotation(ColumnAdapter.class) != null) {
+                final TypeMirror adapterType = findAdapterType(element);
+                final ExecutableElement adapterFactoryMethod
+                        = adapterType != null ? findAdapterFactoryMethod(context, adapterType) : null;
+                if (adapterFactoryMethod == null) {
+                    continue;
+                }
+                value = CodeBlock.of("$T.$N(cursor)", adapterType, adapterFactoryMethod.getSimpleName().toString());
+                columnType = typeName;
+                erasedType = TypeName.get(types.erasure(element.getReturnType()));
+            } else if (element.getAnnotation(ColumnName.class) != null) {
+                final String getter = cursorGetter(typeName);
+                if (getter == null) {
+                    continue;
+                }
+                value = CodeBlock.of("cursor.$N(mapper.$N)", getter, name + "Index");
+                columnType = columnType(typeName);
+                erasedType = columnType;
+            } else {
+                // not annotated, use default value
+                getArguments.add(first ? "$L" : ", $L", defaultValue(columnType(typeName)));
+                first = false;
+                continue;
+            }
+
+            final String column = name + "Column";
+            columns.addField(ArrayTypeName.of(columnType), column, Modifier.FINAL);
+            if (!columnType.equals(erasedType)) {
+                // generic arrays can't be created, an array of the erasure is cast instead
+                unchecked = true;
+                constructor.addStatement("this.$N = ($T) new $T[size]", column, ArrayTypeName.of(columnType),
+                        erasedType);
+            } else if (columnType instanceof ArrayTypeName) {
+                constructor.addStatement("this.$N = new $T[size][]", column,
+                        ((ArrayTypeName) columnType).componentType);
+            } else {
+                constructor.addStatement("this.$N = new $T[size]", column, columnType);
             }
+            fromCursor.addStatement("columns.$N[i] = $L", column, value);
+            getArguments.add(first ? "$N[row]" : ", $N[row]", column);
+            first = false;
         }
 
+        if (unchecked) {
+            constructor.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "unchecked")
+                    .build());
+        }
+        fromCursor.endControlFlow()
+                .addStatement("return columns");
+        final MethodSpec get = MethodSpec.methodBuilder("get")
+                .addParameter(TypeName.INT, "row")
+                .returns(ClassName.get(context.packageName(), classSimpleName))
+                .addStatement("return new $N($L)", classSimpleName, getArguments.build())
+                .build();
+
+        return columns.addMethod(constructor.build())
+                .addMethod(fromCursor.build())
+                .addMethod(MethodSpec.methodBuilder("size")
+                        .returns(TypeName.INT)
+                        .addStatement("return size")
+                        .build())
+                .addMethod(get)
+                .build();
+    }
+
+    private static TypeSpec generateCursorList(Context context) {
+        final TypeName autoValueType = TypeName.get(context.autoValueClass().asType());
+        final TypeName cacheType = ClassName.get("", LRU_CACHE);
+        final TypeSpec cache = TypeSpec.classBuilder(LRU_CACHE)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .superclass(ParameterizedTypeName.get(ClassName.get(LinkedHashMap.class), TypeName.INT.box(),
+                        autoValueType))
+                .addField(FieldSpec.builder(TypeName.LONG, "serialVersionUID",
+                        Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("1L")
+                        .build())
+                .addField(TypeName.INT, "cacheSize", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(TypeName.INT, "cacheSize")
+                        .addStatement("super(16, 0.75F, true)")
+                        .addStatement("this.cacheSize = cacheSize")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("removeEldestEntry")
+                        .addModifiers(Modifier.PROTECTED)
+                        .addAnnotation(Override.class)
+                        .addParameter(ParameterizedTypeName.get(ClassName.get(Map.Entry.class),
+                                TypeName.INT.box(), autoValueType), "eldest")
+                        .returns(TypeName.BOOLEAN)
+                        .addStatement("return size() > cacheSize")
+                        .build())
+                .build();
+        return TypeSpec.classBuilder(CURSOR_LIST)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .superclass(ParameterizedTypeName.get(ClassName.get(AbstractList.class), autoValueType))
+                .addField(CURSOR_VALUES, "cursor", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(ClassName.get("", CURSOR_MAPPER), "mapper", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(TypeName.INT, "size", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(cacheType, "cache", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(CURSOR_VALUES, "cursor")
+                        .addParameter(TypeName.INT, "cacheSize")
+                        .addStatement("this.cursor = cursor")
+                        .addStatement("this.mapper = $N.of(cursor)", CURSOR_MAPPER)
+                        .addStatement("this.size = cursor.getCount()")
+                        .addStatement("this.cache = new $T(cacheSize)", cacheType)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("get")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addParameter(TypeName.INT, "position")
+                        .returns(autoValueType)
+                        .addStatement("$T value = cache.get(position)", autoValueType)
+                        .beginControlFlow("if (value == null)")
+                        .beginControlFlow("if (!cursor.moveToPosition(position))")
+                        .addStatement("throw new $T($S + position + $S + size)", IndexOutOfBoundsException.class,
+                                "Invalid position ", ", size is ")
+                        .endControlFlow()
+                        .addStatement("value = mapper.map(cursor)")
+                        .addStatement("cache.put(position, value)")
+                        .endControlFlow()
+                        .addStatement("return value")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("size")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(TypeName.INT)
+                        .addStatement("return size")
+                        .build())
+                .addType(cache)
+                .build();
+    }
+
+    private static String cursorGetter(TypeName typeName) {
+        if (typeName.equals(ArrayTypeName.of(TypeName.BYTE))) {
+            return "getBlob";
+        } else if (typeName.equals(TypeName.DOUBLE) || typeName.equals(TypeName.DOUBLE.box())) {
+            return "getDouble";
+        } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
+            return "getFloat";
+        } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
+            return "getInt";
+        } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
+            return "getLong";
+        } else if (typeName.equals(TypeName.SHORT) || typeName.equals(TypeName.SHORT.box())) {
+            return "getShort";
+        } else if (typeName.equals(TypeName.get(String.class))) {
+            return "getString";
+        }
         return null;
     }
 
+    private static TypeName columnType(TypeName typeName) {
+        // boxed types are read from cursor as primitives
+        if (typeName.isBoxedPrimitive() && cursorGetter(typeName) != null) {
+            return typeName.unbox();
+        }
+        return typeName;
+    }
+
+    private static String defaultValue(TypeName columnType) {
+        if (!columnType.isPrimitive()) {
+            return "null";
+        } else if (columnType.equals(TypeName.BOOLEAN)) {
+            return "false";
+        } else if (columnType.equals(TypeName.DOUBLE)) {
+            return "0.0";
+        } else if (columnType.equals(TypeName.FLOAT)) {
+            return "0.0F";
+        } else if (columnType.equals(TypeName.LONG)) {
+            return "0L";
+        }
+        return "0";
+    }
+
+    private static TypeMirror findAdapterType(ExecutableElement element) {
+        return Utils.findAnnotationClassValue(element, ColumnAdapter.class);
+    }
+
     private static ExecutableElement findAdapterFactoryMethod(Context context, TypeMirror type) {
         final TypeName factoryTypeName = TypeName.get(type);
         final TypeElement factoryType = (TypeElement) context.processingEnvironment()
@@ -278,43 +869,44 @@ public class AutoValueCursorExtension extends AutoValueExtension {
         }
 
         for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
-            final ExecutableElement element = entry.getValue();
+            final CodeBlock putValue = generatePutValue(context, entry.getKey(), entry.getValue());
+            if (putValue != null) {
+                toContentValuesMethod.addCode(putValue);
+            }
+        }
+        toContentValuesMethod.addStatement("return contentValues");
 
-            final ColumnAdapter columnAdapter = element.getAnnotation(ColumnAdapter.class);
-            if (columnAdapter != null) {
-                final TypeMirror adapterType = findAdapterType(element);
-                if (adapterType == null) {
-                    context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
-                            "Failed to find adapter type: " + columnAdapter.value(),
-                            context.autoValueClass());
-                }
+        return toContentValuesMethod.build();
+    }
 
-                final ExecutableElement adapterToContentValuesMethod
-                        = findAdapterToContentValuesMethod(context, adapterType);
-                if (adapterToContentValuesMethod == null) {
-                    context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
-                            String.format("Adapter class `%s` needs to implements a method" +
-                                            " taking an optional `ContentValues` and returning `ContentValues`",
-                                    columnAdapter.value()),
-                            context.autoValueClass());
-                    continue;
-                }
+    private static MethodSpec generateToChangedContentValuesMethod(Context context,
+                                                                   Map<String, ExecutableElement> properties) {
+        final ExecutableElement toContentValuesElement = findToChangedContentValues(context.autoValueClass());
+        if (toContentValuesElement == null) {
+            return null;
+        }
 
-                if (adapterToContentValuesMethod.getParameters().size() == 0) {
-                    toContentValuesMethod.addStatement("contentValues.putAll($L().$N())",
-                            entry.getKey(), adapterToContentValuesMethod.getSimpleName().toString());
-                } else {
-                    toContentValuesMethod.addStatement("$L().$N(contentValues)",
-                            entry.getKey(), adapterToContentValuesMethod.getSimpleName().toString());
-                }
+        final String previous = toContentValuesElement.getParameters().get(0).getSimpleName().toString();
+        final MethodSpec.Builder toContentValuesMethod = MethodSpec.overriding(toContentValuesElement);
 
-                continue;
+        int annotatedProperties = 0;
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            if (entry.getValue().getAnnotation(ColumnName.class) != null) {
+                ++annotatedProperties;
             }
+        }
+        toContentValuesMethod.addStatement("$T contentValues = new $T($L)",
+                CONTENT_VALUES, CONTENT_VALUES, annotatedProperties);
 
-            final ColumnName columnName = element.getAnnotation(ColumnName.class);
-            if (columnName != null) {
-                toContentValuesMethod.addStatement("contentValues.put($S, $L())",
-                        columnName.value(), entry.getKey());
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            final CodeBlock putValue = generatePutValue(context, name, element);
+            if (putValue != null) {
+                toContentValuesMethod.beginControlFlow("if ($N == null || $L)", previous,
+                        Utils.generateNotEqual(element, name + "()", previous + "." + name + "()"))
+                        .addCode(putValue)
+                        .endControlFlow();
             }
         }
         toContentValuesMethod.addStatement("return contentValues");
@@ -322,6 +914,216 @@ public class AutoValueCursorExtension extends AutoValueExtension {
         return toContentValuesMethod.build();
     }
 
+    private static MethodSpec generateDiffMethod(Context context, Map<String, ExecutableElement> properties) {
+        final ExecutableElement diffElement = findDiff(context.autoValueClass());
+        if (diffElement == null) {
+            return null;
+        }
+
+        final boolean isLong = diffElement.getReturnType().getKind() == TypeKind.LONG;
+        if (properties.size() > (isLong ? 64 : 32)) {
+            context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("`%s` can only diff up to %d properties",
+                            diffElement.getSimpleName(), isLong ? 64 : 32),
+                    diffElement);
+            return null;
+        }
+
+        final String other = diffElement.getParameters().get(0).getSimpleName().toString();
+        final MethodSpec.Builder diffMethod = MethodSpec.overriding(diffElement)
+                .addStatement(isLong ? "long changed = 0L" : "int changed = 0");
+
+        // bits are assigned to properties in declaration order
+        int bit = 0;
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            diffMethod.beginControlFlow("if ($L)",
+                    Utils.generateNotEqual(entry.getValue(), name + "()", other + "." + name + "()"))
+                    .addStatement(isLong ? "changed |= 1L << $L" : "changed |= 1 << $L", bit++)
+                    .endControlFlow();
+        }
+        diffMethod.addStatement("return changed");
+
+        return diffMethod.build();
+    }
+
+    private static CodeBlock generatePutValue(Context context, String name, ExecutableElement element) {
+        final ColumnAdapter columnAdapter = element.getAnnotation(ColumnAdapter.class);
+        if (columnAdapter != null) {
+            final TypeMirror adapterType = findAdapterType(element);
+            if (adapterType == null) {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Failed to find adapter type: " + columnAdapter.value(),
+                        context.autoValueClass());
+            }
+
+            final ExecutableElement adapterToContentValuesMethod
+                    = findAdapterToContentValuesMethod(context, adapterType);
+            if (adapterToContentValuesMethod == null) {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        String.format("Adapter class `%s` needs to implements a method" +
+                                        " taking an optional `ContentValues` and returning `ContentValues`",
+                                columnAdapter.value()),
+                        context.autoValueClass());
+                return null;
+            }
+
+            if (adapterToContentValuesMethod.getParameters().size() == 0) {
+                return CodeBlock.builder()
+                        .addStatement("contentValues.putAll($L().$N())",
+                                name, adapterToContentValuesMethod.getSimpleName().toString())
+                        .build();
+            } else {
+                return CodeBlock.builder()
+                        .addStatement("$L().$N(contentValues)",
+                                name, adapterToContentValuesMethod.getSimpleName().toString())
+                        .build();
+            }
+        }
+
+        final ColumnName columnName = element.getAnnotation(ColumnName.class);
+        if (columnName != null) {
+            return CodeBlock.builder()
+                    .addStatement("contentValues.put($S, $L())", columnName.value(), name)
+                    .build();
+        }
+        return null;
+    }
+
+    private static FieldSpec generateInsertSqlField(String tableName, Map<String, ExecutableElement> properties) {
+        final StringBuilder columns = new StringBuilder();
+        final StringBuilder values = new StringBuilder();
+        for (String columnName : findColumnNames(properties)) {
+            columns.append(columnName).append(", ");
+            values.append("?, ");
+        }
+        if (columns.length() > 0) {
+            columns.setLength(columns.length() - 2); // removes the trailing ", "
+            values.setLength(values.length() - 2);
+        }
+        return FieldSpec.builder(String.class, "INSERT_SQL", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + values + ")")
+                .build();
+    }
+
+    private static FieldSpec generateUpdateSqlField(String tableName, Map<String, ExecutableElement> properties) {
+        final StringBuilder columns = new StringBuilder();
+        for (String columnName : findColumnNames(properties)) {
+            columns.append(columnName).append(" = ?, ");
+        }
+        if (columns.length() > 0) {
+            columns.setLength(columns.length() - 2); // removes the trailing ", "
+        }
+        return FieldSpec.builder(String.class, "UPDATE_SQL", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", "UPDATE " + tableName + " SET " + columns)
+                .build();
+    }
+
+    private static MethodSpec generateBindToMethod(Context context, Map<String, ExecutableElement> properties) {
+        final ExecutableElement bindToElement = findBindTo(context.autoValueClass());
+        if (bindToElement == null) {
+            return null;
+        }
+
+        final MethodSpec.Builder bindToMethod = MethodSpec.methodBuilder(bindToElement.getSimpleName().toString())
+                .addAnnotation(Override.class)
+                .addParameter(SQLITE_STATEMENT, "statement");
+
+        final Set<Modifier> modifiers = new HashSet<>(bindToElement.getModifiers());
+        modifiers.remove(Modifier.ABSTRACT);
+        bindToMethod.addModifiers(modifiers);
+
+        // columns are bound at their position in PROJECTION, starting from 1
+        int index = 1;
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            if (element.getAnnotation(ColumnName.class) == null || element.getAnnotation(ColumnAdapter.class) != null) {
+                continue;
+            }
+
+            final TypeName typeName = TypeName.get(element.getReturnType());
+            final TypeName columnType = columnType(typeName);
+            final String binder;
+            if (columnType.equals(TypeName.INT) || columnType.equals(TypeName.LONG)
+                    || columnType.equals(TypeName.SHORT)) {
+                binder = "bindLong";
+            } else if (columnType.equals(TypeName.DOUBLE) || columnType.equals(TypeName.FLOAT)) {
+                binder = "bindDouble";
+            } else if (columnType.equals(TypeName.get(String.class))) {
+                binder = "bindString";
+            } else if (columnType.equals(ArrayTypeName.of(TypeName.BYTE))) {
+                binder = "bindBlob";
+            } else {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unsupported type: " + typeName.toString(), context.autoValueClass());
+                ++index;
+                continue;
+            }
+
+            if (Utils.isNullable(element)) {
+                bindToMethod.addStatement("$T $N = $N()", typeName, name, name)
+                        .beginControlFlow("if ($N == null)", name)
+                        .addStatement("statement.bindNull($L)", index)
+                        .nextControlFlow("else")
+                        .addStatement("statement.$N($L, $N)", binder, index, name)
+                        .endControlFlow();
+            } else {
+                bindToMethod.addStatement("statement.$N($L, $N())", binder, index, name);
+            }
+            ++index;
+        }
+
+        return bindToMethod.build();
+    }
+
+    private static MethodSpec generateInsertAllMethod(Context context, Map<String, ExecutableElement> properties) {
+        final ExecutableElement toContentValuesElement = findToContentValues(context.autoValueClass());
+        if (toContentValuesElement == null || toContentValuesElement.getParameters().size() != 1) {
+            // only generated when ContentValues can be reused for all rows
+            return null;
+        }
+
+        int annotatedProperties = 0;
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            if (entry.getValue().getAnnotation(ColumnName.class) != null) {
+                ++annotatedProperties;
+            }
+        }
+
+        final TypeName autoValueType = TypeName.get(context.autoValueClass().asType());
+        final TypeName iteratorType = ParameterizedTypeName.get(ClassName.get(Iterator.class),
+                WildcardTypeName.subtypeOf(autoValueType));
+        return MethodSpec.methodBuilder("insertAll")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(SQLITE_DATABASE, "database")
+                .addParameter(String.class, "table")
+                .addParameter(ParameterizedTypeName.get(ClassName.get(List.class),
+                        WildcardTypeName.subtypeOf(autoValueType)), "values")
+                .addParameter(TypeName.INT, "chunkSize")
+                .beginControlFlow("if (chunkSize <= 0)")
+                .addStatement("throw new $T($S + chunkSize)", IllegalArgumentException.class,
+                        "chunkSize must be positive: ")
+                .endControlFlow()
+                .addStatement("$T contentValues = new $T($L)", CONTENT_VALUES, CONTENT_VALUES, annotatedProperties)
+                .addStatement("$T iterator = values.iterator()", iteratorType)
+                .beginControlFlow("while (iterator.hasNext())")
+                .addStatement("database.beginTransaction()")
+                .beginControlFlow("try")
+                .beginControlFlow("for (int i = 0; i < chunkSize && iterator.hasNext(); ++i)")
+                .addStatement("contentValues.clear()")
+                .addStatement("iterator.next().$N(contentValues)", toContentValuesElement.getSimpleName().toString())
+                // throws on failure, so that the chunk is rolled back instead of silently dropping rows
+                .addStatement("database.insertOrThrow(table, null, contentValues)")
+                .endControlFlow()
+                .addStatement("database.setTransactionSuccessful()")
+                .nextControlFlow("finally")
+                .addStatement("database.endTransaction()")
+                .endControlFlow()
+                .endControlFlow()
+                .build();
+    }
+
     private static ExecutableElement findAdapterToContentValuesMethod(Context context, TypeMirror type) {
         final TypeElement factoryType = (TypeElement) context.processingEnvironment()
                 .getTypeUtils().asElement(type);
@@ -17,10 +17,12 @@
 package net.zionsoft.auto.droid;
 
 import com.google.auto.service.AutoService;
+import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.AutoValueExtension;
 import com.google.common.collect.Sets;
 import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
@@ -28,20 +30,61 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
 
 @AutoService(AutoValueExtension.class)
 public class AutoValueParcelableExtension extends AutoValueExtension {
+    private static final TypeName PARCEL = ClassName.get("android.os", "Parcel");
+    private static final String LAZY = "Lazy";
+    private static final String LIST_SLICE = "ListSlice";
+    private static final TypeName BINDER = ClassName.get("android.os", "Binder");
+    private static final TypeName IBINDER = ClassName.get("android.os", "IBinder");
+    private static final TypeName REMOTE_EXCEPTION = ClassName.get("android.os", "RemoteException");
+    private static final TypeName STRING = ClassName.get(String.class);
+    private static final TypeName BYTE_ARRAY = ArrayTypeName.of(TypeName.BYTE);
+    private static final TypeName INT_ARRAY = ArrayTypeName.of(TypeName.INT);
+    private static final TypeName LONG_ARRAY = ArrayTypeName.of(TypeName.LONG);
+    private static final TypeName STRING_LIST = ParameterizedTypeName.get(ClassName.get(List.class), STRING);
+    private static final ClassName MAP_ENTRY = ClassName.get(Map.Entry.class);
+    private static final TypeName DATE = ClassName.get(Date.class);
+    private static final ClassName BIG_INTEGER = ClassName.get(BigInteger.class);
+    private static final ClassName BIG_DECIMAL = ClassName.get(BigDecimal.class);
+
     @Override
     public boolean applicable(Context context) {
-        final ProcessingEnvironment processingEnvironment = context.processingEnvironment();
+        return isParcelable(context.processingEnvironment(), context.autoValueClass().asType());
+    }
+
+    private static boolean isParcelable(ProcessingEnvironment processingEnvironment, TypeMirror type) {
         final TypeElement parcelableType = processingEnvironment
                 .getElementUtils()
                 .getTypeElement("android.os.Parcelable");
@@ -49,8 +92,7 @@ public class AutoValueParcelableExtension extends AutoValueExtension {
             return false;
         }
         final TypeMirror parcelableTypeMirror = parcelableType.asType();
-        final TypeMirror autoValueClass = context.autoValueClass().asType();
-        return processingEnvironment.getTypeUtils().isAssignable(autoValueClass, parcelableTypeMirror);
+        return processingEnvironment.getTypeUtils().isAssignable(type, parcelableTypeMirror);
     }
 
     @Override
@@ -67,15 +109,78 @@ public class AutoValueParcelableExtension extends AutoValueExtension {
     public String generateClass(Context context, String className, String classToExtend, boolean isFinal) {
         final String packageName = context.packageName();
         final Map<String, ExecutableElement> properties = context.properties();
-        final TypeSpec subclass = TypeSpec.classBuilder(className)
+        final TypeSpec.Builder subclass = TypeSpec.classBuilder(className)
                 .addModifiers(isFinal ? Modifier.FINAL : Modifier.ABSTRACT)
                 .superclass(ClassName.get(packageName, classToExtend))
                 .addMethod(Utils.generateConstructor(properties))
-                .addMethod(generateDescribeContentsMethod())
-                .addMethod(generateWriteToParcelMethod(properties))
-                .addField(generateCreatorField(packageName, className, properties))
-                .build();
-        return JavaFile.builder(packageName, subclass).build().toString();
+                .addMethod(generateDescribeContentsMethod());
+        final TypeName classType = ClassName.get(packageName, className);
+        final MethodSpec.Builder writeToParcelMethod = MethodSpec.methodBuilder("writeToParcel")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class);
+        final MethodSpec.Builder createFromParcelMethod = MethodSpec.methodBuilder("createFromParcel")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class);
+        final boolean lazy = context.autoValueClass().getAnnotation(LazyParcel.class) != null;
+        if (lazy && !context.autoValueClass().getTypeParameters().isEmpty()) {
+            context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "@LazyParcel does not support generic classes", context.autoValueClass());
+        }
+        final MethodSpec createFromParcel;
+        final TypeName creatorType;
+        if (lazy || context.autoValueClass().getAnnotation(CachedParcel.class) != null) {
+            subclass.addField(ArrayTypeName.of(TypeName.BYTE), "marshalled", Modifier.PRIVATE, Modifier.VOLATILE)
+                    .addMethod(generateCachedWriteToParcelMethod(writeToParcelMethod))
+                    .addMethod(generateWriteToParcelMethod(context,
+                            MethodSpec.methodBuilder("writeProperties").addModifiers(Modifier.PRIVATE), properties))
+                    .addMethod(generateCreateFromParcelMethod(context, className, classType,
+                            MethodSpec.methodBuilder("readProperties").addModifiers(Modifier.PRIVATE, Modifier.STATIC),
+                            properties))
+                    .addMethod(generateUnmarshallMethod(classType));
+            if (lazy) {
+                creatorType = ClassName.get(context.autoValueClass());
+                subclass.addType(generateLazyType(context, classType));
+                createFromParcel = createFromParcelMethod.addParameter(PARCEL, "in")
+                        .returns(creatorType)
+                        .addStatement("return new $N(in.createByteArray())", LAZY)
+                        .build();
+            } else {
+                creatorType = classType;
+                createFromParcel = createFromParcelMethod.addParameter(PARCEL, "in")
+                        .returns(classType)
+                        .addStatement("return unmarshall(in.createByteArray())")
+                        .build();
+            }
+        } else {
+            subclass.addMethod(generateWriteToParcelMethod(context, writeToParcelMethod, properties));
+            creatorType = classType;
+            createFromParcel = generateCreateFromParcelMethod(
+                    context, className, classType, createFromParcelMethod, properties);
+        }
+        subclass.addField(generateCreatorField(creatorType, createFromParcel));
+        if (context.autoValueClass().getAnnotation(ParcelListSlice.class) != null) {
+            if (context.autoValueClass().getTypeParameters().isEmpty()) {
+                subclass.addType(generateListSliceType(context, packageName, className));
+            } else {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@ParcelListSlice does not support generic classes", context.autoValueClass());
+            }
+        }
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            if (entry.getValue().getAnnotation(ParcelAdapter.class) != null) {
+                continue;
+            }
+            final MethodSpec readCollectionMethod = generateReadCollectionMethod(
+                    context, entry.getKey(), entry.getValue().getReturnType());
+            if (readCollectionMethod != null) {
+                subclass.addMethod(readCollectionMethod);
+            }
+        }
+        if (containsCompressedProperty(properties)) {
+            subclass.addMethod(generateWriteCompressedMethod())
+                    .addMethod(generateReadCompressedMethod());
+        }
+        return JavaFile.builder(packageName, subclass.build()).build().toString();
     }
 
     private static MethodSpec generateDescribeContentsMethod() {
@@ -87,31 +192,568 @@ public class AutoValueParcelableExtension extends AutoValueExtension {
                 .build();
     }
 
-    private static MethodSpec generateWriteToParcelMethod(Map<String, ExecutableElement> properties) {
-        final MethodSpec.Builder builder = MethodSpec.methodBuilder("writeToParcel")
-                .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addParameter(ClassName.get("android.os", "Parcel"), "dest")
+    private static MethodSpec generateCachedWriteToParcelMethod(MethodSpec.Builder builder) {
+        return builder.addParameter(PARCEL, "dest")
+                .addParameter(TypeName.INT, "flags")
+                .returns(TypeName.VOID)
+                .addStatement("byte[] bytes = marshalled")
+                .beginControlFlow("if (bytes == null)")
+                .addStatement("$T parcel = $T.obtain()", PARCEL, PARCEL)
+                .beginControlFlow("try")
+                .addStatement("writeProperties(parcel, flags)")
+                .addStatement("bytes = parcel.marshall()")
+                .nextControlFlow("finally")
+                .addStatement("parcel.recycle()")
+                .endControlFlow()
+                .addStatement("marshalled = bytes")
+                .endControlFlow()
+                .addStatement("dest.writeByteArray(bytes)")
+                .build();
+    }
+
+    private static MethodSpec generateWriteToParcelMethod(Context context, MethodSpec.Builder builder,
+                                                          Map<String, ExecutableElement> properties) {
+        builder.addParameter(PARCEL, "dest")
                 .addParameter(TypeName.INT, "flags")
                 .returns(TypeName.VOID);
 
+        // one bit per nullable property, set if the value is null and therefore not written
+        final Map<String, Integer> nullableProperties = findNullableProperties(properties);
+        for (int i = 0; i < nullableProperties.size(); i += 32) {
+            builder.addStatement("int nullBits$L = 0", i / 32);
+        }
+        for (Map.Entry<String, Integer> entry : nullableProperties.entrySet()) {
+            final int bit = entry.getValue();
+            builder.beginControlFlow("if ($N() == null)", entry.getKey())
+                    .addStatement("nullBits$L |= 1 << $L", bit / 32, bit % 32)
+                    .endControlFlow();
+        }
+        for (int i = 0; i < nullableProperties.size(); i += 32) {
+            builder.addStatement("dest.writeInt(nullBits$L)", i / 32);
+        }
+
         for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
-            builder.addStatement("dest.writeValue($N())", entry.getKey());
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            CodeBlock writeValue = generateAdapterWriteValue(context, name, element);
+            if (writeValue == null) {
+                writeValue = generateCompressedWriteValue(context, name, element);
+            }
+            if (writeValue == null) {
+                writeValue = generateWriteValue(context, element.getReturnType(), name + "()");
+            }
+            if (writeValue == null) {
+                if (isSerializable(context.processingEnvironment(), element.getReturnType())) {
+                    context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            String.format("Property `%s` will be written to parcel with Java serialization", name),
+                            element);
+                }
+                writeValue = CodeBlock.builder().addStatement("dest.writeValue($N())", name).build();
+            }
+            if (nullableProperties.containsKey(name)) {
+                builder.beginControlFlow("if ($N() != null)", name)
+                        .addCode(writeValue)
+                        .endControlFlow();
+            } else {
+                builder.addCode(writeValue);
+            }
         }
 
         return builder.build();
     }
 
-    private static FieldSpec generateCreatorField(String packageName, String className,
-                                                  Map<String, ExecutableElement> properties) {
-        final TypeName classType = ClassName.get(packageName, className);
+    private static Map<String, Integer> findNullableProperties(Map<String, ExecutableElement> properties) {
+        final Map<String, Integer> nullableProperties = new LinkedHashMap<>();
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final ExecutableElement element = entry.getValue();
+            if (!element.getReturnType().getKind().isPrimitive() && Utils.isNullable(element)) {
+                nullableProperties.put(entry.getKey(), nullableProperties.size());
+            }
+        }
+        return nullableProperties;
+    }
+
+    private static TypeName parcelType(TypeMirror type) {
+        final TypeName typeName = TypeName.get(type);
+        return typeName.isBoxedPrimitive() ? typeName.unbox() : typeName;
+    }
+
+    private static CodeBlock generateAdapterWriteValue(Context context, String name, ExecutableElement element) {
+        final ParcelAdapter parcelAdapter = element.getAnnotation(ParcelAdapter.class);
+        if (parcelAdapter == null) {
+            return null;
+        }
+
+        final TypeMirror adapterType = Utils.findAnnotationClassValue(element, ParcelAdapter.class);
+        if (adapterType == null) {
+            context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to find adapter type: " + parcelAdapter.value(), element);
+            return null;
+        }
+
+        final ExecutableElement writeMethod = findAdapterWriteMethod(context, adapterType, element.getReturnType());
+        final ExecutableElement readMethod = findAdapterReadMethod(context, adapterType, element.getReturnType());
+        if (writeMethod == null || readMethod == null) {
+            context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("Adapter class `%s` needs to implement a `static` method taking the value and" +
+                                    " a `Parcel`, and a `static` method taking a `Parcel` and returning the value",
+                            adapterType),
+                    element);
+            return null;
+        }
+
+        return CodeBlock.builder()
+                .addStatement("$T.$N($N(), dest)", TypeName.get(adapterType), writeMethod.getSimpleName().toString(), name)
+                .build();
+    }
+
+    private static CodeBlock generateAdapterReadValue(Context context, ExecutableElement element) {
+        final TypeMirror adapterType = Utils.findAnnotationClassValue(element, ParcelAdapter.class);
+        if (adapterType == null) {
+            return null;
+        }
+
+        final ExecutableElement readMethod = findAdapterReadMethod(context, adapterType, element.getReturnType());
+        if (readMethod == null) {
+            // errors are reported by generateAdapterWriteValue()
+            return null;
+        }
+        return CodeBlock.of("$T.$N(in)", TypeName.get(adapterType), readMethod.getSimpleName().toString());
+    }
+
+    private static ExecutableElement findAdapterWriteMethod(Context context, TypeMirror adapterType,
+                                                            TypeMirror valueType) {
+        final Types types = context.processingEnvironment().getTypeUtils();
+        for (ExecutableElement method : findStaticMethods(context, adapterType)) {
+            final List<? extends VariableElement> parameters = method.getParameters();
+            if (parameters.size() == 2
+                    && types.isAssignable(valueType, parameters.get(0).asType())
+                    && PARCEL.equals(TypeName.get(parameters.get(1).asType()))) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static ExecutableElement findAdapterReadMethod(Context context, TypeMirror adapterType,
+                                                           TypeMirror valueType) {
+        final Types types = context.processingEnvironment().getTypeUtils();
+        for (ExecutableElement method : findStaticMethods(context, adapterType)) {
+            final List<? extends VariableElement> parameters = method.getParameters();
+            if (parameters.size() == 1
+                    && PARCEL.equals(TypeName.get(parameters.get(0).asType()))
+                    && types.isAssignable(method.getReturnType(), valueType)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static List<ExecutableElement> findStaticMethods(Context context, TypeMirror type) {
+        final TypeElement typeElement = (TypeElement) context.processingEnvironment().getTypeUtils().asElement(type);
+        final List<ExecutableElement> methods = new ArrayList<>();
+        for (Element e : typeElement.getEnclosedElements()) {
+            if (e.getKind() == ElementKind.METHOD && e.getModifiers().contains(Modifier.STATIC)) {
+                methods.add((ExecutableElement) e);
+            }
+        }
+        return methods;
+    }
+
+    private static boolean containsCompressedProperty(Map<String, ExecutableElement> properties) {
+        for (ExecutableElement element : properties.values()) {
+            final TypeName typeName = TypeName.get(element.getReturnType());
+            if (element.getAnnotation(Compressed.class) != null
+                    && (STRING.equals(typeName) || BYTE_ARRAY.equals(typeName))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CodeBlock generateCompressedWriteValue(Context context, String name, ExecutableElement element) {
+        final Compressed compressed = element.getAnnotation(Compressed.class);
+        if (compressed == null) {
+            return null;
+        }
+
+        final TypeName typeName = TypeName.get(element.getReturnType());
+        if (STRING.equals(typeName)) {
+            return CodeBlock.builder()
+                    .addStatement("writeCompressed(dest, $N().getBytes($T.forName($S)), $L)",
+                            name, Charset.class, "UTF-8", compressed.threshold())
+                    .build();
+        } else if (BYTE_ARRAY.equals(typeName)) {
+            return CodeBlock.builder()
+                    .addStatement("writeCompressed(dest, $N(), $L)", name, compressed.threshold())
+                    .build();
+        }
+
+        context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "@Compressed only supports `String` and `byte[]`", element);
+        return null;
+    }
+
+    private static CodeBlock generateCompressedReadValue(ExecutableElement element) {
+        if (element.getAnnotation(Compressed.class) == null) {
+            return null;
+        }
+
+        final TypeName typeName = TypeName.get(element.getReturnType());
+        if (STRING.equals(typeName)) {
+            return CodeBlock.of("new $T(readCompressed(in), $T.forName($S))", String.class, Charset.class, "UTF-8");
+        } else if (BYTE_ARRAY.equals(typeName)) {
+            return CodeBlock.of("readCompressed(in)");
+        }
+        // errors are reported by generateCompressedWriteValue()
+        return null;
+    }
+
+    private static MethodSpec generateWriteCompressedMethod() {
+        // falls back to the raw bytes if they are too short, or the deflated bytes are not shorter
+        return MethodSpec.methodBuilder("writeCompressed")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(PARCEL, "dest")
+                .addParameter(BYTE_ARRAY, "bytes")
+                .addParameter(TypeName.INT, "threshold")
+                .beginControlFlow("if (bytes.length >= threshold)")
+                .addStatement("$T deflater = new $T()", Deflater.class, Deflater.class)
+                .beginControlFlow("try")
+                .addStatement("deflater.setInput(bytes)")
+                .addStatement("deflater.finish()")
+                .addStatement("byte[] deflated = new byte[bytes.length]")
+                .addStatement("int length = deflater.deflate(deflated)")
+                .beginControlFlow("if (deflater.finished())")
+                .addStatement("dest.writeByte((byte) 1)")
+                .addStatement("dest.writeInt(bytes.length)")
+                .addStatement("dest.writeByteArray(deflated, 0, length)")
+                .addStatement("return")
+                .endControlFlow()
+                .nextControlFlow("finally")
+                .addStatement("deflater.end()")
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("dest.writeByte((byte) 0)")
+                .addStatement("dest.writeByteArray(bytes)")
+                .build();
+    }
+
+    private static MethodSpec generateReadCompressedMethod() {
+        return MethodSpec.methodBuilder("readCompressed")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(PARCEL, "in")
+                .returns(BYTE_ARRAY)
+                .beginControlFlow("if (in.readByte() == 0)")
+                .addStatement("return in.createByteArray()")
+                .endControlFlow()
+                .addStatement("byte[] bytes = new byte[in.readInt()]")
+                .addStatement("$T inflater = new $T()", Inflater.class, Inflater.class)
+                .beginControlFlow("try")
+                .addStatement("inflater.setInput(in.createByteArray())")
+                .beginControlFlow("if (inflater.inflate(bytes) != bytes.length)")
+                .addStatement("throw new $T($S)", IllegalStateException.class, "Corrupted compressed data")
+                .endControlFlow()
+                .addStatement("return bytes")
+                .nextControlFlow("catch ($T e)", DataFormatException.class)
+                .addStatement("throw new $T(e)", IllegalStateException.class)
+                .nextControlFlow("finally")
+                .addStatement("inflater.end()")
+                .endControlFlow()
+                .build();
+    }
+
+    private static CodeBlock generateWriteValue(Context context, TypeMirror type, String value) {
+        final CodeBlock writeValue = generateWriteSingleValue(context, type, value);
+        if (writeValue != null) {
+            return writeValue;
+        }
+
+        final TypeMirror listElementType = findListElementType(type);
+        if (listElementType != null) {
+            final CodeBlock writeElement = generateWriteSingleValue(context, listElementType, "element");
+            if (writeElement != null) {
+                return CodeBlock.builder()
+                        .addStatement("dest.writeInt($L.size())", value)
+                        .beginControlFlow("for ($T element : $L)", TypeName.get(listElementType), value)
+                        .add(writeElement)
+                        .endControlFlow()
+                        .build();
+            }
+        }
+
+        final TypeMirror mapValueType = findMapValueType(type);
+        if (mapValueType != null) {
+            final CodeBlock writeMapValue = generateWriteSingleValue(context, mapValueType, "entry.getValue()");
+            if (writeMapValue != null) {
+                return CodeBlock.builder()
+                        .addStatement("dest.writeInt($L.size())", value)
+                        .beginControlFlow("for ($T entry : $L.entrySet())",
+                                ParameterizedTypeName.get(MAP_ENTRY, STRING, TypeName.get(mapValueType)), value)
+                        .addStatement("dest.writeString(entry.getKey())")
+                        .add(writeMapValue)
+                        .endControlFlow()
+                        .build();
+            }
+        }
+
+        return null;
+    }
+
+    private static CodeBlock generateWriteSingleValue(Context context, TypeMirror type, String value) {
+        final TypeName typeName = parcelType(type);
+        if (TypeName.BOOLEAN.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeInt($L ? 1 : 0)", value).build();
+        } else if (TypeName.BYTE.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeByte($L)", value).build();
+        } else if (TypeName.CHAR.equals(typeName) || TypeName.SHORT.equals(typeName)
+                || TypeName.INT.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeInt($L)", value).build();
+        } else if (TypeName.LONG.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeLong($L)", value).build();
+        } else if (TypeName.FLOAT.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeFloat($L)", value).build();
+        } else if (TypeName.DOUBLE.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeDouble($L)", value).build();
+        } else if (STRING.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeString($L)", value).build();
+        } else if (BYTE_ARRAY.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeByteArray($L)", value).build();
+        } else if (INT_ARRAY.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeIntArray($L)", value).build();
+        } else if (LONG_ARRAY.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeLongArray($L)", value).build();
+        } else if (STRING_LIST.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeStringList($L)", value).build();
+        } else if (DATE.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeLong($L.getTime())", value).build();
+        } else if (BIG_INTEGER.equals(typeName)) {
+            return CodeBlock.builder().addStatement("dest.writeByteArray($L.toByteArray())", value).build();
+        } else if (BIG_DECIMAL.equals(typeName)) {
+            return CodeBlock.builder()
+                    .addStatement("dest.writeByteArray($L.unscaledValue().toByteArray())", value)
+                    .addStatement("dest.writeInt($L.scale())", value)
+                    .build();
+        } else if (isEnum(type)) {
+            return CodeBlock.builder().addStatement("dest.writeInt($L.ordinal())", value).build();
+        } else if (findCreator(context, type) != null) {
+            return CodeBlock.builder().addStatement("$L.writeToParcel(dest, flags)", value).build();
+        }
+        return null;
+    }
+
+    private static CodeBlock generateReadValue(Context context, String name, TypeMirror type) {
+        final CodeBlock readValue = generateReadSingleValue(context, type);
+        if (readValue != null) {
+            return readValue;
+        }
+        if (generateReadCollectionMethod(context, name, type) != null) {
+            return CodeBlock.of("$N(in)", readCollectionMethodName(name));
+        }
+        return null;
+    }
+
+    private static CodeBlock generateReadSingleValue(Context context, TypeMirror type) {
+        final TypeName typeName = parcelType(type);
+        if (TypeName.BOOLEAN.equals(typeName)) {
+            return CodeBlock.of("in.readInt() != 0");
+        } else if (TypeName.BYTE.equals(typeName)) {
+            return CodeBlock.of("in.readByte()");
+        } else if (TypeName.CHAR.equals(typeName)) {
+            return CodeBlock.of("(char) in.readInt()");
+        } else if (TypeName.SHORT.equals(typeName)) {
+            return CodeBlock.of("(short) in.readInt()");
+        } else if (TypeName.INT.equals(typeName)) {
+            return CodeBlock.of("in.readInt()");
+        } else if (TypeName.LONG.equals(typeName)) {
+            return CodeBlock.of("in.readLong()");
+        } else if (TypeName.FLOAT.equals(typeName)) {
+            return CodeBlock.of("in.readFloat()");
+        } else if (TypeName.DOUBLE.equals(typeName)) {
+            return CodeBlock.of("in.readDouble()");
+        } else if (STRING.equals(typeName)) {
+            return CodeBlock.of("in.readString()");
+        } else if (BYTE_ARRAY.equals(typeName)) {
+            return CodeBlock.of("in.createByteArray()");
+        } else if (INT_ARRAY.equals(typeName)) {
+            return CodeBlock.of("in.createIntArray()");
+        } else if (LONG_ARRAY.equals(typeName)) {
+            return CodeBlock.of("in.createLongArray()");
+        } else if (STRING_LIST.equals(typeName)) {
+            return CodeBlock.of("in.createStringArrayList()");
+        } else if (DATE.equals(typeName)) {
+            return CodeBlock.of("new $T(in.readLong())", DATE);
+        } else if (BIG_INTEGER.equals(typeName)) {
+            return CodeBlock.of("new $T(in.createByteArray())", BIG_INTEGER);
+        } else if (BIG_DECIMAL.equals(typeName)) {
+            return CodeBlock.of("new $T(new $T(in.createByteArray()), in.readInt())", BIG_DECIMAL, BIG_INTEGER);
+        } else if (isEnum(type)) {
+            return CodeBlock.of("$T.values()[in.readInt()]", typeName);
+        }
+
+        final CodeBlock creator = findCreator(context, type);
+        if (creator != null) {
+            return CodeBlock.of("$L.createFromParcel(in)", creator);
+        }
+        return null;
+    }
+
+    private static String readCollectionMethodName(String name) {
+        // the suffix keeps it apart from the other helpers, e.g. readProperties() or readCompressed()
+        return "read" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Collection";
+    }
+
+    private static MethodSpec generateReadCollectionMethod(Context context, String name, TypeMirror type) {
+        if (generateReadSingleValue(context, type) != null) {
+            return null;
+        }
+
+        final TypeMirror listElementType = findListElementType(type);
+        if (listElementType != null) {
+            final CodeBlock readElement = generateReadSingleValue(context, listElementType);
+            if (readElement == null) {
+                return null;
+            }
+            return MethodSpec.methodBuilder(readCollectionMethodName(name))
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .addParameter(ClassName.get("android.os", "Parcel"), "in")
+                    .returns(TypeName.get(type))
+                    .addStatement("int size = in.readInt()")
+                    .addStatement("$T collection = new $T<>(size)", TypeName.get(type), ArrayList.class)
+                    .beginControlFlow("for (int i = 0; i < size; ++i)")
+                    .addStatement("collection.add($L)", readElement)
+                    .endControlFlow()
+                    .addStatement("return collection")
+                    .build();
+        }
+
+        final TypeMirror mapValueType = findMapValueType(type);
+        if (mapValueType != null) {
+            final CodeBlock readMapValue = generateReadSingleValue(context, mapValueType);
+            if (readMapValue == null) {
+                return null;
+            }
+            return MethodSpec.methodBuilder(readCollectionMethodName(name))
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .addParameter(ClassName.get("android.os", "Parcel"), "in")
+                    .returns(TypeName.get(type))
+                    .addStatement("int size = in.readInt()")
+                    .addStatement("$T collection = new $T<>(size)", TypeName.get(type), HashMap.class)
+                    .beginControlFlow("for (int i = 0; i < size; ++i)")
+                    .addStatement("collection.put(in.readString(), $L)", readMapValue)
+                    .endControlFlow()
+                    .addStatement("return collection")
+                    .build();
+        }
+
+        return null;
+    }
+
+    private static boolean isEnum(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+    }
+
+    private static boolean isSerializable(ProcessingEnvironment processingEnvironment, TypeMirror type) {
+        final Elements elements = processingEnvironment.getElementUtils();
+        final Types types = processingEnvironment.getTypeUtils();
+        if (type.getKind() != TypeKind.DECLARED
+                || !types.isAssignable(type, elements.getTypeElement(Serializable.class.getName()).asType())) {
+            return false;
+        }
+
+        // types written by writeValue() without Java serialization
+        for (Class<?> cls : Arrays.asList(CharSequence.class, List.class, Map.class)) {
+            if (types.isAssignable(type, types.erasure(elements.getTypeElement(cls.getName()).asType()))) {
+                return false;
+            }
+        }
+        return !isParcelable(processingEnvironment, type);
+    }
+
+    private static TypeMirror findListElementType(TypeMirror type) {
+        final List<? extends TypeMirror> typeArguments = findTypeArguments(type, List.class);
+        return typeArguments != null ? typeArguments.get(0) : null;
+    }
+
+    private static TypeMirror findMapValueType(TypeMirror type) {
+        final List<? extends TypeMirror> typeArguments = findTypeArguments(type, Map.class);
+        return typeArguments != null && STRING.equals(TypeName.get(typeArguments.get(0)))
+                ? typeArguments.get(1) : null;
+    }
+
+    private static List<? extends TypeMirror> findTypeArguments(TypeMirror type, Class<?> cls) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        final DeclaredType declaredType = (DeclaredType) type;
+        final TypeElement typeElement = (TypeElement) declaredType.asElement();
+        if (!typeElement.getQualifiedName().contentEquals(cls.getName())
+                || declaredType.getTypeArguments().isEmpty()) {
+            return null;
+        }
+        for (TypeMirror typeArgument : declaredType.getTypeArguments()) {
+            if (typeArgument.getKind() != TypeKind.DECLARED) {
+                return null;
+            }
+        }
+        return declaredType.getTypeArguments();
+    }
+
+    private static CodeBlock findCreator(Context context, TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        final TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+        if (!typeElement.getTypeParameters().isEmpty()
+                || !isParcelable(context.processingEnvironment(), type)) {
+            return null;
+        }
+
+        if (typeElement.getAnnotation(AutoValue.class) != null) {
+            // the generated class is package private
+            final String packageName = ClassName.get(typeElement).packageName();
+            if (!packageName.equals(context.packageName())) {
+                return null;
+            }
+
+            String className = typeElement.getSimpleName().toString();
+            for (Element enclosing = typeElement.getEnclosingElement();
+                 enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+                className = enclosing.getSimpleName() + "_" + className;
+            }
+            return CodeBlock.of("$T.CREATOR", ClassName.get(packageName, "AutoValue_" + className));
+        }
+
+        // subclasses could only be read back with their own CREATOR
+        if (!typeElement.getModifiers().contains(Modifier.FINAL)) {
+            return null;
+        }
+        for (Element element : typeElement.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.FIELD
+                    && element.getSimpleName().contentEquals("CREATOR")
+                    && element.getModifiers().containsAll(EnumSet.of(Modifier.PUBLIC, Modifier.STATIC))) {
+                final TypeMirror creatorType = element.asType();
+                if (creatorType.getKind() == TypeKind.DECLARED
+                        && ((DeclaredType) creatorType).getTypeArguments().size() == 1
+                        && context.processingEnvironment().getTypeUtils().isSameType(
+                        ((DeclaredType) creatorType).getTypeArguments().get(0), type)) {
+                    return CodeBlock.of("$T.CREATOR", ClassName.get(typeElement));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static FieldSpec generateCreatorField(TypeName classType, MethodSpec createFromParcelMethod) {
         final TypeName type = ParameterizedTypeName.get(ClassName.get("", "android.os.Parcelable.Creator"), classType);
         final FieldSpec.Builder creatorBuilder = FieldSpec.builder(
                 type, "CREATOR", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
 
         final TypeSpec initializer = TypeSpec.anonymousClassBuilder("")
                 .addSuperinterface(type)
-                .addMethod(generateCreateFromParcelMethod(className, classType, properties))
+                .addMethod(createFromParcelMethod)
                 .addMethod(generateNewArrayMethod(classType))
                 .build();
         creatorBuilder.initializer("$L", initializer);
@@ -119,22 +761,243 @@ public class AutoValueParcelableExtension extends AutoValueExtension {
         return creatorBuilder.build();
     }
 
-    private static MethodSpec generateCreateFromParcelMethod(String className, TypeName classType,
-                                                             Map<String, ExecutableElement> properties) {
-        final MethodSpec.Builder createFromParcelBuilder = MethodSpec.methodBuilder("createFromParcel")
+    private static MethodSpec generateUnmarshallMethod(TypeName classType) {
+        return MethodSpec.methodBuilder("unmarshall")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(ArrayTypeName.of(TypeName.BYTE), "bytes")
+                .returns(classType)
+                .addStatement("$T parcel = $T.obtain()", PARCEL, PARCEL)
+                .beginControlFlow("try")
+                .addStatement("parcel.unmarshall(bytes, 0, bytes.length)")
+                .addStatement("parcel.setDataPosition(0)")
+                .addStatement("$T value = readProperties(parcel)", classType)
+                .addStatement("value.marshalled = bytes")
+                .addStatement("return value")
+                .nextControlFlow("finally")
+                .addStatement("parcel.recycle()")
+                .endControlFlow()
+                .build();
+    }
+
+    private static TypeSpec generateLazyType(Context context, TypeName classType) {
+        // the generated members are prefixed with $, and unmarshall() is qualified, so that no accessor hides them
+        final TypeSpec.Builder lazy = TypeSpec.classBuilder(LAZY)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .superclass(ClassName.get(context.autoValueClass()))
+                .addField(ArrayTypeName.of(TypeName.BYTE), "$bytes", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(classType, "$decoded", Modifier.PRIVATE, Modifier.VOLATILE)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(ArrayTypeName.of(TypeName.BYTE), "bytes")
+                        .addStatement("this.$N = bytes", "$bytes")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("$decoded")
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(classType)
+                        .addStatement("$T value = $N", classType, "$decoded")
+                        .beginControlFlow("if (value == null)")
+                        .addStatement("value = $T.unmarshall($N)", classType, "$bytes")
+                        .addStatement("$N = value", "$decoded")
+                        .endControlFlow()
+                        .addStatement("return value")
+                        .build());
+
+        for (ExecutableElement property : context.properties().values()) {
+            lazy.addMethod(Utils.generateDelegatingMethod(context, property, "$decoded()"));
+        }
+        for (ExecutableElement method : Utils.findNonPropertyAbstractMethods(context)) {
+            final String name = method.getSimpleName().toString();
+            if (name.equals("describeContents") && method.getParameters().isEmpty()) {
+                lazy.addMethod(generateDescribeContentsMethod());
+            } else if (name.equals("writeToParcel") && method.getParameters().size() == 2) {
+                // writes the bytes it was created from, without decoding
+                lazy.addMethod(MethodSpec.methodBuilder("writeToParcel")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addParameter(PARCEL, "dest")
+                        .addParameter(TypeName.INT, "flags")
+                        .addStatement("dest.writeByteArray($N)", "$bytes")
+                        .build());
+            } else {
+                lazy.addMethod(Utils.generateDelegatingMethod(context, method, "$decoded()"));
+            }
+        }
+
+        return lazy.addMethod(MethodSpec.methodBuilder("equals")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addParameter(Object.class, "o")
+                .returns(TypeName.BOOLEAN)
+                .addStatement("return $N().equals(o)", "$decoded")
+                .build())
+                .addMethod(MethodSpec.methodBuilder("hashCode")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(TypeName.INT)
+                        .addStatement("return $N().hashCode()", "$decoded")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("toString")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(STRING)
+                        .addStatement("return $N().toString()", "$decoded")
+                        .build())
+                .build();
+    }
+
+    private static TypeSpec generateListSliceType(Context context, String packageName, String className) {
+        final ClassName classType = ClassName.get(packageName, className);
+        final ClassName listSliceType = classType.nestedClass(LIST_SLICE);
+        final TypeName listType = ParameterizedTypeName.get(
+                ClassName.get(List.class), ClassName.get(context.autoValueClass()));
+
+        final TypeSpec binder = TypeSpec.anonymousClassBuilder("")
+                .superclass(BINDER)
+                .addMethod(MethodSpec.methodBuilder("onTransact")
+                        .addModifiers(Modifier.PROTECTED)
+                        .addAnnotation(Override.class)
+                        .addParameter(TypeName.INT, "code")
+                        .addParameter(PARCEL, "data")
+                        .addParameter(PARCEL, "reply")
+                        .addParameter(TypeName.INT, "flags")
+                        .addException(REMOTE_EXCEPTION)
+                        .returns(TypeName.BOOLEAN)
+                        .beginControlFlow("if (code != FIRST_CALL_TRANSACTION)")
+                        .addStatement("return super.onTransact(code, data, reply, flags)")
+                        .endControlFlow()
+                        .addStatement("writeChunk(list, data.readInt(), reply, callFlags)")
+                        .addStatement("return true")
+                        .build())
+                .build();
+
+        final MethodSpec createFromParcel = MethodSpec.methodBuilder("createFromParcel")
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(Override.class)
-                .addParameter(ClassName.get("android.os", "Parcel"), "in")
+                .addParameter(PARCEL, "in")
+                .returns(listSliceType)
+                .addStatement("int size = in.readInt()")
+                .addStatement("$T list = new $T<>(size)", listType, ArrayList.class)
+                .addStatement("readChunk(in, size, list)")
+                .beginControlFlow("if (list.size() < size)")
+                // the remaining items are pulled from the sender, one chunk per transaction
+                .addStatement("$T binder = in.readStrongBinder()", IBINDER)
+                .beginControlFlow("while (list.size() < size)")
+                .addStatement("$T data = $T.obtain()", PARCEL, PARCEL)
+                .addStatement("$T reply = $T.obtain()", PARCEL, PARCEL)
+                .beginControlFlow("try")
+                .addStatement("data.writeInt(list.size())")
+                .addStatement("binder.transact($T.FIRST_CALL_TRANSACTION, data, reply, 0)", IBINDER)
+                .addStatement("readChunk(reply, size, list)")
+                .nextControlFlow("catch ($T e)", REMOTE_EXCEPTION)
+                .addStatement("throw new $T(e)", IllegalStateException.class)
+                .nextControlFlow("finally")
+                .addStatement("reply.recycle()")
+                .addStatement("data.recycle()")
+                .endControlFlow()
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return new $T(list)", listSliceType)
+                .build();
+
+        return TypeSpec.classBuilder(LIST_SLICE)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .addSuperinterface(ClassName.get("android.os", "Parcelable"))
+                .addField(FieldSpec.builder(TypeName.INT, "MAX_IPC_SIZE",
+                        Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("64 * 1024")
+                        .build())
+                .addField(generateCreatorField(listSliceType, createFromParcel))
+                .addField(listType, "list", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(listType, "list")
+                        .addStatement("this.list = list")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("getList")
+                        .returns(listType)
+                        .addStatement("return list")
+                        .build())
+                .addMethod(generateDescribeContentsMethod())
+                .addMethod(MethodSpec.methodBuilder("writeToParcel")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addParameter(PARCEL, "dest")
+                        .addParameter(TypeName.INT, "flags")
+                        .addStatement("dest.writeInt(list.size())")
+                        // the binder writes the remaining items with the parcelable flags of this call,
+                        // not the flags of its transactions
+                        .addStatement("final int callFlags = flags")
+                        .beginControlFlow("if (writeChunk(list, 0, dest, callFlags) < list.size())")
+                        .addStatement("dest.writeStrongBinder($L)", binder)
+                        .endControlFlow()
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("writeChunk")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .addParameter(listType, "list")
+                        .addParameter(TypeName.INT, "start")
+                        .addParameter(PARCEL, "dest")
+                        .addParameter(TypeName.INT, "flags")
+                        .returns(TypeName.INT)
+                        .addStatement("int size = list.size()")
+                        .addStatement("int i = start")
+                        .beginControlFlow("while (i < size && dest.dataSize() < MAX_IPC_SIZE)")
+                        .addStatement("dest.writeInt(1)")
+                        .addStatement("list.get(i++).writeToParcel(dest, flags)")
+                        .endControlFlow()
+                        .beginControlFlow("if (i < size)")
+                        .addStatement("dest.writeInt(0)")
+                        .endControlFlow()
+                        .addStatement("return i")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("readChunk")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .addParameter(PARCEL, "in")
+                        .addParameter(TypeName.INT, "size")
+                        .addParameter(listType, "list")
+                        .beginControlFlow("while (list.size() < size && in.readInt() != 0)")
+                        .addStatement("list.add($T.CREATOR.createFromParcel(in))", classType)
+                        .endControlFlow()
+                        .build())
+                .build();
+    }
+
+    private static MethodSpec generateCreateFromParcelMethod(Context context, String className, TypeName classType,
+                                                             MethodSpec.Builder createFromParcelBuilder,
+                                                             Map<String, ExecutableElement> properties) {
+        createFromParcelBuilder.addParameter(PARCEL, "in")
                 .returns(classType);
 
-        createFromParcelBuilder.addStatement("$T classLoader = $T.class.getClassLoader()",
-                ClassName.get("java.lang", "ClassLoader"), classType);
+        final Map<String, Integer> nullableProperties = findNullableProperties(properties);
+        for (int i = 0; i < nullableProperties.size(); i += 32) {
+            createFromParcelBuilder.addStatement("int nullBits$L = in.readInt()", i / 32);
+        }
 
+        boolean hasClassLoader = false;
         for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
             final String name = entry.getKey();
             final ExecutableElement element = entry.getValue();
             final TypeName typeName = TypeName.get(element.getReturnType());
-            createFromParcelBuilder.addStatement("$T $N = ($T) in.readValue(classLoader)", typeName, name, typeName);
+            CodeBlock readValue = generateAdapterReadValue(context, element);
+            if (readValue == null) {
+                readValue = generateCompressedReadValue(element);
+            }
+            if (readValue == null) {
+                readValue = generateReadValue(context, name, element.getReturnType());
+            }
+            if (readValue == null) {
+                if (!hasClassLoader) {
+                    createFromParcelBuilder.addStatement("$T classLoader = $T.class.getClassLoader()",
+                            ClassName.get("java.lang", "ClassLoader"), classType);
+                    hasClassLoader = true;
+                }
+                readValue = CodeBlock.of("($T) in.readValue(classLoader)", typeName);
+            }
+
+            final Integer bit = nullableProperties.get(name);
+            if (bit != null) {
+                createFromParcelBuilder.addStatement("$T $N = (nullBits$L & 1 << $L) != 0 ? null : $L",
+                        typeName, name, bit / 32, bit % 32, readValue);
+            } else {
+                createFromParcelBuilder.addStatement("$T $N = $L", typeName, name, readValue);
+            }
         }
 
         createFromParcelBuilder.addCode("return ")
@@ -18,37 +18,233 @@ package net.zionsoft.auto.droid;
 
 import com.google.auto.service.AutoService;
 import com.google.auto.value.extension.AutoValueExtension;
+import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 
 @AutoService(AutoValueExtension.class)
 public final class AutoValueSharedPreferencesExtension extends AutoValueExtension {
+    private static final ClassName SHARED_PREFERENCES = ClassName.get("android.content", "SharedPreferences");
+    private static final ClassName EDITOR = SHARED_PREFERENCES.nestedClass("Editor");
+    private static final ClassName CHANGE_LISTENER = SHARED_PREFERENCES.nestedClass("OnSharedPreferenceChangeListener");
+    private static final TypeName STRING_SET = ParameterizedTypeName.get(ClassName.get("java.util", "Set"),
+            TypeName.get(String.class));
+
+    private static final String CACHE = "Cache";
+    private static final String LAZY = "Lazy";
+
     @Override
     public boolean applicable(Context context) {
         return Utils.containsAnnotation(context, SharedPreference.class);
     }
 
+    @Override
+    public Set<ExecutableElement> consumeMethods(Context context) {
+        final Set<ExecutableElement> methods = new HashSet<>();
+        final ExecutableElement writeToSharedPreferences = findWriteTo(context.autoValueClass(), SHARED_PREFERENCES);
+        if (writeToSharedPreferences != null) {
+            methods.add(writeToSharedPreferences);
+        }
+        final ExecutableElement writeToEditor = findWriteTo(context.autoValueClass(), EDITOR);
+        if (writeToEditor != null) {
+            methods.add(writeToEditor);
+        }
+        final ExecutableElement writeChangesToSharedPreferences
+                = findWriteChanges(context.autoValueClass(), SHARED_PREFERENCES);
+        if (writeChangesToSharedPreferences != null) {
+            methods.add(writeChangesToSharedPreferences);
+        }
+        final ExecutableElement writeChangesToEditor = findWriteChanges(context.autoValueClass(), EDITOR);
+        if (writeChangesToEditor != null) {
+            methods.add(writeChangesToEditor);
+        }
+        return methods;
+    }
+
+    private static ExecutableElement findWriteTo(TypeElement cls, ClassName parameterType) {
+        for (Element element : cls.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            final ExecutableElement executableElement = (ExecutableElement) element;
+            if (!executableElement.getModifiers().contains(Modifier.ABSTRACT)
+                    || executableElement.getReturnType().getKind() != TypeKind.VOID) {
+                continue;
+            }
+
+            final List<? extends VariableElement> parameters = executableElement.getParameters();
+            if (parameters.size() == 1 && parameterType.equals(TypeName.get(parameters.get(0).asType()))) {
+                return executableElement;
+            }
+        }
+        return null;
+    }
+
+    private static ExecutableElement findWriteChanges(TypeElement cls, ClassName parameterType) {
+        final TypeName autoValueType = TypeName.get(cls.asType());
+        for (Element element : cls.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+
+            // the editor version must tell whether anything is put, so that the caller can skip apply()
+            final ExecutableElement executableElement = (ExecutableElement) element;
+            if (!executableElement.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+
+            final TypeKind returnType = executableElement.getReturnType().getKind();
+            if (returnType != TypeKind.BOOLEAN && (returnType != TypeKind.VOID || EDITOR.equals(parameterType))) {
+                continue;
+            }
+
+            final List<? extends VariableElement> parameters = executableElement.getParameters();
+            if (parameters.size() == 2 && parameterType.equals(TypeName.get(parameters.get(0).asType()))
+                    && autoValueType.equals(TypeName.get(parameters.get(1).asType()))) {
+                return executableElement;
+            }
+        }
+        return null;
+    }
+
     @Override
     public String generateClass(Context context, String className, String classToExtend, boolean isFinal) {
         final String packageName = context.packageName();
         final Map<String, ExecutableElement> properties = context.properties();
-        final TypeSpec subclass = TypeSpec.classBuilder(className)
+        final TypeSpec.Builder subclass = TypeSpec.classBuilder(className)
                 .addModifiers(isFinal ? Modifier.FINAL : Modifier.ABSTRACT)
                 .superclass(ClassName.get(packageName, classToExtend))
                 .addMethod(Utils.generateConstructor(properties))
                 .addMethod(generateFactoryMethod(context, properties))
+                .addMethod(generateMapFactoryMethod(context, properties));
+        final MethodSpec writeToSharedPreferencesMethod = generateWriteToSharedPreferencesMethod(context, properties);
+        if (writeToSharedPreferencesMethod != null) {
+            subclass.addMethod(writeToSharedPreferencesMethod);
+        }
+        final MethodSpec writeToEditorMethod = generateWriteToEditorMethod(context, properties);
+        if (writeToEditorMethod != null) {
+            subclass.addMethod(writeToEditorMethod);
+        }
+        final MethodSpec writeChangesToSharedPreferencesMethod
+                = generateWriteChangesToSharedPreferencesMethod(context, properties);
+        if (writeChangesToSharedPreferencesMethod != null) {
+            subclass.addMethod(writeChangesToSharedPreferencesMethod);
+        }
+        final MethodSpec writeChangesToEditorMethod = generateWriteChangesToEditorMethod(context, properties);
+        if (writeChangesToEditorMethod != null) {
+            subclass.addMethod(writeChangesToEditorMethod);
+        }
+        if (context.autoValueClass().getAnnotation(CachedSharedPreferences.class) != null) {
+            subclass.addField(generateKeysField(properties))
+                    .addType(generateCache(context));
+        }
+        if (context.autoValueClass().getAnnotation(LazySharedPreferences.class) != null) {
+            if (context.autoValueClass().getTypeParameters().isEmpty()) {
+                subclass.addMethod(generateLazyFactoryMethod(context))
+                        .addType(generateLazyType(context, properties));
+            } else {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@LazySharedPreferences does not support generic classes", context.autoValueClass());
+            }
+        }
+        return JavaFile.builder(packageName, subclass.build()).build().toString();
+    }
+
+    private static FieldSpec generateKeysField(Map<String, ExecutableElement> properties) {
+        final CodeBlock.Builder keys = CodeBlock.builder();
+        boolean first = true;
+        for (ExecutableElement element : properties.values()) {
+            final SharedPreference sharedPreference = element.getAnnotation(SharedPreference.class);
+            if (sharedPreference != null) {
+                keys.add(first ? "$S" : ", $S", sharedPreference.key());
+                first = false;
+            }
+        }
+        return FieldSpec.builder(STRING_SET, "KEYS", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$T.unmodifiableSet(new $T<>($T.asList($L)))",
+                        Collections.class, HashSet.class, Arrays.class, keys.build())
+                .build();
+    }
+
+    private static TypeSpec generateCache(Context context) {
+        final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
+        final TypeName classType = ClassName.get(context.packageName(), classSimpleName);
+        final TypeName cacheType = ClassName.get("", CACHE);
+
+        // registers before the first read, so that no change is missed in between, and only keeps the first read
+        // if no change has set a newer snapshot meanwhile
+        final MethodSpec ofMethod = MethodSpec.methodBuilder("of")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(SHARED_PREFERENCES, "sharedPreferences")
+                .returns(cacheType)
+                .addStatement("$T cache = new $T(sharedPreferences)", cacheType, cacheType)
+                .addStatement("sharedPreferences.registerOnSharedPreferenceChangeListener(cache)")
+                .addStatement("cache.snapshot.compareAndSet(null, createFromSharedPreferences(sharedPreferences))")
+                .addStatement("return cache")
+                .build();
+
+        // a null key means the preferences have been cleared
+        final MethodSpec onSharedPreferenceChangedMethod = MethodSpec.methodBuilder("onSharedPreferenceChanged")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(SHARED_PREFERENCES, "sharedPreferences")
+                .addParameter(String.class, "key")
+                .beginControlFlow("if (key == null || KEYS.contains(key))")
+                .addStatement("snapshot.set(createFromSharedPreferences(sharedPreferences))")
+                .endControlFlow()
+                .build();
+
+        return TypeSpec.classBuilder(CACHE)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .addSuperinterface(CHANGE_LISTENER)
+                .addField(SHARED_PREFERENCES, "sharedPreferences", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(AtomicReference.class), classType),
+                        "snapshot", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T<>()", AtomicReference.class)
+                        .build())
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .addParameter(SHARED_PREFERENCES, "sharedPreferences")
+                        .addStatement("this.sharedPreferences = sharedPreferences")
+                        .build())
+                .addMethod(ofMethod)
+                .addMethod(MethodSpec.methodBuilder("get")
+                        .returns(classType)
+                        .addStatement("return snapshot.get()")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("close")
+                        .addStatement("sharedPreferences.unregisterOnSharedPreferenceChangeListener(this)")
+                        .build())
+                .addMethod(onSharedPreferenceChangedMethod)
                 .build();
-        return JavaFile.builder(packageName, subclass).build().toString();
     }
 
     private static MethodSpec generateFactoryMethod(Context context, Map<String, ExecutableElement> properties) {
@@ -63,64 +259,372 @@ public final class AutoValueSharedPreferencesExtension extends AutoValueExtensio
             final String name = entry.getKey();
             final ExecutableElement element = entry.getValue();
             final TypeName typeName = TypeName.get(element.getReturnType());
+            final CodeBlock readValue = generateReadValue(element, "sharedPreferences");
+            if (readValue == null) {
+                context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unsupported type: " + typeName.toString(), context.autoValueClass());
+                continue;
+            }
+            factoryMethod.addStatement("$T $N = $L", valueType(typeName), name, readValue);
+        }
+
+        factoryMethod.addCode("return ")
+                .addCode(Utils.generateObjectConstruction(classSimpleName, properties));
+
+        return factoryMethod.build();
+    }
+
+    private static TypeName valueType(TypeName typeName) {
+        return typeName.isBoxedPrimitive() ? typeName.unbox() : typeName;
+    }
+
+    private static CodeBlock generateReadValue(ExecutableElement element, String sharedPreferences) {
+        final CodeBlock defaultValue = generateDefaultValue(element);
+        final SharedPreference sharedPreference = element.getAnnotation(SharedPreference.class);
+        if (sharedPreference == null || defaultValue == null) {
+            return defaultValue;
+        }
+        return CodeBlock.of("$N.$N($S, $L)", sharedPreferences,
+                findGetter(TypeName.get(element.getReturnType())), sharedPreference.key(), defaultValue);
+    }
+
+    private static String findGetter(TypeName typeName) {
+        if (typeName.equals(TypeName.BOOLEAN) || typeName.equals(TypeName.BOOLEAN.box())) {
+            return "getBoolean";
+        } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
+            return "getFloat";
+        } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
+            return "getInt";
+        } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
+            return "getLong";
+        } else if (typeName.equals(TypeName.get(String.class))) {
+            return "getString";
+        } else if (typeName.equals(STRING_SET)) {
+            return "getStringSet";
+        }
+        return null;
+    }
+
+    private static CodeBlock generateDefaultValue(ExecutableElement element) {
+        final TypeName typeName = TypeName.get(element.getReturnType());
+        final SharedPreference sharedPreference = element.getAnnotation(SharedPreference.class);
+        final String defaultValue = sharedPreference != null ? sharedPreference.defaultValue() : "";
+        if (typeName.equals(TypeName.BOOLEAN) || typeName.equals(TypeName.BOOLEAN.box())) {
+            return CodeBlock.of("$L", !"".equals(defaultValue) && Boolean.parseBoolean(defaultValue));
+        } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
+            return CodeBlock.of("$LF", "".equals(defaultValue) ? 0.0F : Float.parseFloat(defaultValue));
+        } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
+            return CodeBlock.of("$L", "".equals(defaultValue) ? 0 : Integer.parseInt(defaultValue));
+        } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
+            return CodeBlock.of("$LL", "".equals(defaultValue) ? 0L : Long.parseLong(defaultValue));
+        } else if (sharedPreference == null || typeName.equals(STRING_SET)) {
+            // not annotated, or no default value supported
+            return CodeBlock.of("null");
+        } else if (typeName.equals(TypeName.get(String.class))) {
+            return CodeBlock.of("$S", defaultValue);
+        }
+        return null;
+    }
+
+    private static MethodSpec generateMapFactoryMethod(Context context, Map<String, ExecutableElement> properties) {
+        final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
+        final MethodSpec.Builder factoryMethod = MethodSpec.methodBuilder("createFromMap")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Map.class), TypeName.get(String.class),
+                        WildcardTypeName.subtypeOf(Object.class)), "map")
+                .returns(ClassName.get(context.packageName(), classSimpleName));
+
+        // same as the getters of SharedPreferences: the default value is used if the key is missing
+        // the values are kept in indexed locals, which cannot collide with any property name
+        boolean unchecked = false;
+        int index = 0;
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            final TypeName typeName = TypeName.get(element.getReturnType());
+            final CodeBlock defaultValue = generateDefaultValue(element);
+            if (defaultValue == null) {
+                // errors are reported by generateFactoryMethod()
+                continue;
+            }
+
             final SharedPreference sharedPreference = element.getAnnotation(SharedPreference.class);
             if (sharedPreference == null) {
-                // not annotated, use default value
-                if (typeName.equals(TypeName.BOOLEAN) || typeName.equals(TypeName.BOOLEAN.box())) {
-                    factoryMethod.addStatement("boolean $N = false", name);
-                } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
-                    factoryMethod.addStatement("float $N = 0.0F", name);
-                } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
-                    factoryMethod.addStatement("int $N = 0", name);
-                } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
-                    factoryMethod.addStatement("long $N = 0L", name);
-                } else {
-                    factoryMethod.addStatement("$T $N = null", typeName, name);
-                }
+                factoryMethod.addStatement("$T $N = $L", valueType(typeName), name, defaultValue);
+            } else if (typeName.equals(STRING_SET)) {
+                unchecked = true;
+                factoryMethod.addStatement("$T $N = ($T) map.get($S)", typeName, name, typeName,
+                        sharedPreference.key());
             } else {
-                final String key = sharedPreference.key();
-                String defaultValue = sharedPreference.defaultValue();
-                if (typeName.equals(TypeName.BOOLEAN) || typeName.equals(TypeName.BOOLEAN.box())) {
-                    if ("".equals(defaultValue)) {
-                        defaultValue = "false";
-                    }
-                    factoryMethod.addStatement("boolean $N = sharedPreferences.getBoolean($S, $L)",
-                            name, key, Boolean.parseBoolean(defaultValue));
-                } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
-                    if ("".equals(defaultValue)) {
-                        defaultValue = "0.0F";
-                    }
-                    factoryMethod.addStatement("float $N = sharedPreferences.getFloat($S, $LF)", name,
-                            key, Float.parseFloat(defaultValue));
-                } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
-                    if ("".equals(defaultValue)) {
-                        defaultValue = "0";
-                    }
-                    factoryMethod.addStatement("int $N = sharedPreferences.getInt($S, $L)", name, key,
-                            Integer.parseInt(defaultValue));
-                } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
-                    if ("".equals(defaultValue)) {
-                        defaultValue = "0";
-                    }
-                    factoryMethod.addStatement("long $N = sharedPreferences.getLong($S, $LL)", name,
-                            key, Long.parseLong(defaultValue));
-                } else if (typeName.equals(TypeName.get(String.class))) {
-                    factoryMethod.addStatement("String $N = sharedPreferences.getString($S, $S)", name,
-                            key, defaultValue);
-                } else if (typeName.equals(ParameterizedTypeName.get(ClassName.get("java.util", "Set"),
-                        TypeName.get(String.class)))) {
-                    factoryMethod.addStatement(
-                            "Set<String> $N = sharedPreferences.getStringSet($S, null)", name, key);
-                } else {
-                    context.processingEnvironment().getMessager().printMessage(Diagnostic.Kind.ERROR,
-                            "Unsupported type: " + typeName.toString(), context.autoValueClass());
-                }
+                final TypeName boxedType = valueType(typeName).isPrimitive() ? valueType(typeName).box() : typeName;
+                final String value = "$value" + index++;
+                factoryMethod.addStatement("$T $N = ($T) map.get($S)", boxedType, value, boxedType,
+                        sharedPreference.key())
+                        .addStatement("$T $N = $N != null ? $N : $L", valueType(typeName), name, value, value,
+                                defaultValue);
             }
         }
+        if (unchecked) {
+            factoryMethod.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "unchecked")
+                    .build());
+        }
 
         factoryMethod.addCode("return ")
                 .addCode(Utils.generateObjectConstruction(classSimpleName, properties));
 
         return factoryMethod.build();
     }
+
+    private static MethodSpec generateLazyFactoryMethod(Context context) {
+        return MethodSpec.methodBuilder("lazyFromSharedPreferences")
+                .addModifiers(Modifier.STATIC)
+                .addParameter(SHARED_PREFERENCES, "sharedPreferences")
+                .returns(ClassName.get(context.autoValueClass()))
+                .addStatement("return new $N(sharedPreferences)", LAZY)
+                .build();
+    }
+
+    private static TypeSpec generateLazyType(Context context, Map<String, ExecutableElement> properties) {
+        final String classSimpleName = "AutoValue_" + context.autoValueClass().getSimpleName().toString();
+        final TypeName classType = ClassName.get(context.packageName(), classSimpleName);
+        final DeclaredType autoValueType = (DeclaredType) context.autoValueClass().asType();
+        final Types types = context.processingEnvironment().getTypeUtils();
+
+        final TypeSpec.Builder lazy = TypeSpec.classBuilder(LAZY)
+                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                .superclass(ClassName.get(context.autoValueClass()))
+                .addField(SHARED_PREFERENCES, "$sharedPreferences", Modifier.PRIVATE, Modifier.FINAL);
+        final List<MethodSpec> accessors = new ArrayList<>();
+        final CodeBlock.Builder snapshotArguments = CodeBlock.builder();
+        boolean first = true;
+        // the generated members are prefixed with $, so that they cannot collide with any property
+        int index = 0;
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            snapshotArguments.add(first ? "$N()" : ", $N()", name);
+            first = false;
+
+            final CodeBlock readValue = generateReadValue(element, "$sharedPreferences");
+            if (readValue == null) {
+                // errors are reported by generateFactoryMethod()
+                continue;
+            }
+            final MethodSpec.Builder accessor = MethodSpec.overriding(element, autoValueType, types);
+            if (element.getAnnotation(SharedPreference.class) == null) {
+                accessors.add(accessor.addStatement("return $L", readValue).build());
+                continue;
+            }
+
+            // the value is written before the flag, so it is visible to whoever reads the flag
+            final String value = "$value" + index;
+            final String loaded = "$loaded" + index;
+            ++index;
+            lazy.addField(TypeName.BOOLEAN, loaded, Modifier.PRIVATE, Modifier.VOLATILE)
+                    .addField(valueType(TypeName.get(element.getReturnType())), value, Modifier.PRIVATE);
+            accessors.add(accessor.beginControlFlow("if (!$N)", loaded)
+                    .addStatement("$N = $L", value, readValue)
+                    .addStatement("$N = true", loaded)
+                    .endControlFlow()
+                    .addStatement("return $N", value)
+                    .build());
+        }
+
+        lazy.addField(classType, "$snapshot", Modifier.PRIVATE, Modifier.VOLATILE)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .addParameter(SHARED_PREFERENCES, "sharedPreferences")
+                        .addStatement("this.$N = sharedPreferences", "$sharedPreferences")
+                        .build())
+                .addMethods(accessors)
+                .addMethod(MethodSpec.methodBuilder("$snapshot")
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(classType)
+                        .addStatement("$T value = $N", classType, "$snapshot")
+                        .beginControlFlow("if (value == null)")
+                        .addStatement("value = new $T($L)", classType, snapshotArguments.build())
+                        .addStatement("$N = value", "$snapshot")
+                        .endControlFlow()
+                        .addStatement("return value")
+                        .build());
+        for (ExecutableElement method : Utils.findNonPropertyAbstractMethods(context)) {
+            lazy.addMethod(Utils.generateDelegatingMethod(context, method, "$snapshot()"));
+        }
+
+        return lazy.addMethod(MethodSpec.methodBuilder("equals")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addParameter(Object.class, "o")
+                .returns(TypeName.BOOLEAN)
+                .addStatement("return $N().equals(o)", "$snapshot")
+                .build())
+                .addMethod(MethodSpec.methodBuilder("hashCode")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(TypeName.INT)
+                        .addStatement("return $N().hashCode()", "$snapshot")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("toString")
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .returns(String.class)
+                        .addStatement("return $N().toString()", "$snapshot")
+                        .build())
+                .build();
+    }
+
+    private static MethodSpec.Builder overrideWriteTo(ExecutableElement element) {
+        final Set<Modifier> modifiers = new HashSet<>(element.getModifiers());
+        modifiers.remove(Modifier.ABSTRACT);
+        return MethodSpec.methodBuilder(element.getSimpleName().toString())
+                .addAnnotation(Override.class)
+                .addModifiers(modifiers);
+    }
+
+    private static MethodSpec generateWriteToSharedPreferencesMethod(Context context,
+                                                                     Map<String, ExecutableElement> properties) {
+        final ExecutableElement element = findWriteTo(context.autoValueClass(), SHARED_PREFERENCES);
+        if (element == null) {
+            return null;
+        }
+
+        final MethodSpec.Builder writeMethod = overrideWriteTo(element)
+                .addParameter(SHARED_PREFERENCES, "sharedPreferences")
+                .addStatement("$T editor = sharedPreferences.edit()", EDITOR);
+        final ExecutableElement writeToEditor = findWriteTo(context.autoValueClass(), EDITOR);
+        if (writeToEditor != null) {
+            writeMethod.addStatement("$N(editor)", writeToEditor.getSimpleName().toString());
+        } else {
+            for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+                final CodeBlock putValue = generatePutValue(entry.getKey(), entry.getValue());
+                if (putValue != null) {
+                    writeMethod.addCode(putValue);
+                }
+            }
+        }
+        return writeMethod.addStatement("editor.apply()").build();
+    }
+
+    private static MethodSpec generateWriteToEditorMethod(Context context, Map<String, ExecutableElement> properties) {
+        final ExecutableElement element = findWriteTo(context.autoValueClass(), EDITOR);
+        if (element == null) {
+            return null;
+        }
+
+        final MethodSpec.Builder writeMethod = overrideWriteTo(element)
+                .addParameter(EDITOR, "editor");
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final CodeBlock putValue = generatePutValue(entry.getKey(), entry.getValue());
+            if (putValue != null) {
+                writeMethod.addCode(putValue);
+            }
+        }
+        return writeMethod.build();
+    }
+
+    private static MethodSpec generateWriteChangesToSharedPreferencesMethod(
+            Context context, Map<String, ExecutableElement> properties) {
+        final ExecutableElement element = findWriteChanges(context.autoValueClass(), SHARED_PREFERENCES);
+        if (element == null) {
+            return null;
+        }
+
+        final String previous = element.getParameters().get(1).getSimpleName().toString();
+        final MethodSpec.Builder writeMethod = overrideWriteTo(element)
+                .addParameter(SHARED_PREFERENCES, "sharedPreferences")
+                .addParameter(TypeName.get(context.autoValueClass().asType()), previous)
+                .returns(TypeName.get(element.getReturnType()))
+                .addStatement("$T editor = sharedPreferences.edit()", EDITOR);
+        final ExecutableElement writeChangesToEditor = findWriteChanges(context.autoValueClass(), EDITOR);
+        if (writeChangesToEditor != null) {
+            writeMethod.addStatement("boolean changed = $N(editor, $N)",
+                    writeChangesToEditor.getSimpleName().toString(), previous);
+        } else {
+            writeMethod.addCode(generatePutChangedValues(properties, previous));
+        }
+        writeMethod.beginControlFlow("if (changed)")
+                .addStatement("editor.apply()")
+                .endControlFlow();
+        if (element.getReturnType().getKind() == TypeKind.BOOLEAN) {
+            writeMethod.addStatement("return changed");
+        }
+        return writeMethod.build();
+    }
+
+    private static MethodSpec generateWriteChangesToEditorMethod(Context context,
+                                                                 Map<String, ExecutableElement> properties) {
+        final ExecutableElement element = findWriteChanges(context.autoValueClass(), EDITOR);
+        if (element == null) {
+            return null;
+        }
+
+        final String previous = element.getParameters().get(1).getSimpleName().toString();
+        return overrideWriteTo(element)
+                .addParameter(EDITOR, "editor")
+                .addParameter(TypeName.get(context.autoValueClass().asType()), previous)
+                .returns(TypeName.BOOLEAN)
+                .addCode(generatePutChangedValues(properties, previous))
+                .addStatement("return changed")
+                .build();
+    }
+
+    private static CodeBlock generatePutChangedValues(Map<String, ExecutableElement> properties, String previous) {
+        final CodeBlock.Builder putChangedValues = CodeBlock.builder()
+                .addStatement("boolean changed = false");
+        for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement element = entry.getValue();
+            final CodeBlock putValue = generatePutValue(name, element);
+            if (putValue != null) {
+                putChangedValues.beginControlFlow("if ($N == null || $L)", previous,
+                        Utils.generateNotEqual(element, name + "()", previous + "." + name + "()"))
+                        .add(putValue)
+                        .addStatement("changed = true")
+                        .endControlFlow();
+            }
+        }
+        return putChangedValues.build();
+    }
+
+    private static CodeBlock generatePutValue(String name, ExecutableElement element) {
+        final SharedPreference sharedPreference = element.getAnnotation(SharedPreference.class);
+        if (sharedPreference == null) {
+            return null;
+        }
+
+        final String key = sharedPreference.key();
+        final TypeName typeName = TypeName.get(element.getReturnType());
+        final String putMethod;
+        if (typeName.equals(TypeName.BOOLEAN) || typeName.equals(TypeName.BOOLEAN.box())) {
+            putMethod = "putBoolean";
+        } else if (typeName.equals(TypeName.FLOAT) || typeName.equals(TypeName.FLOAT.box())) {
+            putMethod = "putFloat";
+        } else if (typeName.equals(TypeName.INT) || typeName.equals(TypeName.INT.box())) {
+            putMethod = "putInt";
+        } else if (typeName.equals(TypeName.LONG) || typeName.equals(TypeName.LONG.box())) {
+            putMethod = "putLong";
+        } else if (typeName.equals(TypeName.get(String.class))) {
+            putMethod = "putString";
+        } else if (typeName.equals(STRING_SET)) {
+            putMethod = "putStringSet";
+        } else {
+            // errors are reported by generateFactoryMethod()
+            return null;
+        }
+
+        if (typeName.isBoxedPrimitive() && Utils.isNullable(element)) {
+            // null can only be stored by removing the key
+            return CodeBlock.builder()
+                    .beginControlFlow("if ($N() == null)", name)
+                    .addStatement("editor.remove($S)", key)
+                    .nextControlFlow("else")
+                    .addStatement("editor.$N($S, $N())", putMethod, key, name)
+                    .endControlFlow()
+                    .build();
+        }
+        return CodeBlock.builder()
+                .addStatement("editor.$N($S, $N())", putMethod, key, name)
+                .build();
+    }
 }
@@ -17,19 +17,29 @@
 package net.zionsoft.auto.droid;
 
 import com.google.auto.value.extension.AutoValueExtension;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.TypeName;
 
+import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 
 class Utils {
     static boolean containsAnnotation(AutoValueExtension.Context context, Class annotation) {
@@ -51,6 +61,85 @@ class Utils {
         return false;
     }
 
+    static TypeMirror findAnnotationClassValue(ExecutableElement element, Class<? extends Annotation> annotation) {
+        final String className = annotation.getName();
+        AnnotationMirror annotationMirror = null;
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(className)) {
+                annotationMirror = mirror;
+                break;
+            }
+        }
+        if (annotationMirror == null) {
+            return null;
+        }
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotationMirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().toString().equals("value")) {
+                return (TypeMirror) entry.getValue().getValue();
+            }
+        }
+
+        return null;
+    }
+
+    static boolean isNullable(ExecutableElement element) {
+        for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+            if (annotationMirror.getAnnotationType().asElement().getSimpleName().contentEquals("Nullable")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static CodeBlock generateNotEqual(ExecutableElement element, String left, String right) {
+        final TypeName typeName = TypeName.get(element.getReturnType());
+        if (typeName.equals(TypeName.FLOAT)) {
+            return CodeBlock.of("$T.compare($L, $L) != 0", Float.class, left, right);
+        } else if (typeName.equals(TypeName.DOUBLE)) {
+            return CodeBlock.of("$T.compare($L, $L) != 0", Double.class, left, right);
+        } else if (typeName.isPrimitive()) {
+            return CodeBlock.of("$L != $L", left, right);
+        } else if (typeName instanceof ArrayTypeName) {
+            return CodeBlock.of("!$T.equals($L, $L)", Arrays.class, left, right);
+        } else if (isNullable(element)) {
+            return CodeBlock.of("$L != $L && ($L == null || !$L.equals($L))", left, right, left, left, right);
+        }
+        return CodeBlock.of("!$L.equals($L)", left, right);
+    }
+
+    static List<ExecutableElement> findNonPropertyAbstractMethods(AutoValueExtension.Context context) {
+        final List<ExecutableElement> methods = new ArrayList<>();
+        final Collection<ExecutableElement> properties = context.properties().values();
+        for (ExecutableElement method : ElementFilter.methodsIn(context.processingEnvironment()
+                .getElementUtils().getAllMembers(context.autoValueClass()))) {
+            if (method.getModifiers().contains(Modifier.ABSTRACT) && !properties.contains(method)) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    static MethodSpec generateDelegatingMethod(AutoValueExtension.Context context, ExecutableElement method,
+                                               String delegate) {
+        final MethodSpec.Builder builder = MethodSpec.overriding(method,
+                (DeclaredType) context.autoValueClass().asType(), context.processingEnvironment().getTypeUtils());
+        final StringBuilder arguments = new StringBuilder();
+        for (VariableElement parameter : method.getParameters()) {
+            arguments.append(parameter.getSimpleName()).append(", ");
+        }
+        if (arguments.length() > 0) {
+            arguments.setLength(arguments.length() - 2); // removes the trailing ", "
+        }
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            builder.addStatement("$L.$N($L)", delegate, method.getSimpleName().toString(), arguments);
+        } else {
+            builder.addStatement("return $L.$N($L)", delegate, method.getSimpleName().toString(), arguments);
+        }
+        return builder.build();
+    }
+
     static MethodSpec generateConstructor(Map<String, ExecutableElement> properties) {
         final List<ParameterSpec> params = new ArrayList<>();
         for (Map.Entry<String, ExecutableElement> entry : properties.entrySet()) {
@@ -49,4 +49,7 @@ public class ContentValues {
 
     public void putAll(ContentValues other) {
     }
+
+    public void clear() {
+    }
 }
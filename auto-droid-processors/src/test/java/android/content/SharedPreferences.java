@@ -19,6 +19,40 @@ package android.content;
 import java.util.Set;
 
 public class SharedPreferences {
+    public interface OnSharedPreferenceChangeListener {
+        void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key);
+    }
+
+    public interface Editor {
+        Editor putBoolean(String key, boolean value);
+
+        Editor putFloat(String key, float value);
+
+        Editor putInt(String key, int value);
+
+        Editor putLong(String key, long value);
+
+        Editor putString(String key, String value);
+
+        Editor putStringSet(String key, Set<String> values);
+
+        Editor remove(String key);
+
+        boolean commit();
+
+        void apply();
+    }
+
+    public Editor edit() {
+        return null;
+    }
+
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+    }
+
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+    }
+
     public boolean getBoolean(String key, boolean defValue) {
         return defValue;
     }
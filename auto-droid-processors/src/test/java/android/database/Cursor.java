@@ -48,4 +48,23 @@ public class Cursor {
     public int getColumnIndexOrThrow(String columnName) {
         return 0;
     }
+
+    public int getCount() {
+        return 0;
+    }
+
+    public boolean moveToFirst() {
+        return false;
+    }
+
+    public boolean moveToNext() {
+        return false;
+    }
+
+    public boolean moveToPosition(int position) {
+        return false;
+    }
+
+    public void close() {
+    }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2016 Xizhi Zhu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.database.sqlite;
+
+public class SQLiteStatement {
+    public void bindNull(int index) {
+    }
+
+    public void bindLong(int index, long value) {
+    }
+
+    public void bindDouble(int index, double value) {
+    }
+
+    public void bindString(int index, String value) {
+    }
+
+    public void bindBlob(int index, byte[] value) {
+    }
+}
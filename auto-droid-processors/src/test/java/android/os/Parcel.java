@@ -16,7 +16,111 @@
 
 package android.os;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class Parcel {
+    public static Parcel obtain() {
+        return null;
+    }
+
+    public void recycle() {
+    }
+
+    public byte[] marshall() {
+        return null;
+    }
+
+    public void unmarshall(byte[] data, int offset, int length) {
+    }
+
+    public void setDataPosition(int pos) {
+    }
+
+    public int dataSize() {
+        return 0;
+    }
+
+    public void writeStrongBinder(IBinder val) {
+    }
+
+    public IBinder readStrongBinder() {
+        return null;
+    }
+
+    public void writeByte(byte value) {
+    }
+
+    public byte readByte() {
+        return 0;
+    }
+
+    public void writeInt(int value) {
+    }
+
+    public int readInt() {
+        return 0;
+    }
+
+    public void writeLong(long value) {
+    }
+
+    public long readLong() {
+        return 0L;
+    }
+
+    public void writeFloat(float value) {
+    }
+
+    public float readFloat() {
+        return 0.0F;
+    }
+
+    public void writeDouble(double value) {
+    }
+
+    public double readDouble() {
+        return 0.0;
+    }
+
+    public void writeString(String value) {
+    }
+
+    public String readString() {
+        return null;
+    }
+
+    public void writeByteArray(byte[] value) {
+    }
+
+    public void writeByteArray(byte[] value, int offset, int len) {
+    }
+
+    public byte[] createByteArray() {
+        return null;
+    }
+
+    public void writeIntArray(int[] value) {
+    }
+
+    public int[] createIntArray() {
+        return null;
+    }
+
+    public void writeLongArray(long[] value) {
+    }
+
+    public long[] createLongArray() {
+        return null;
+    }
+
+    public void writeStringList(List<String> value) {
+    }
+
+    public ArrayList<String> createStringArrayList() {
+        return null;
+    }
+
     public void writeValue(Object value) {
     }
 
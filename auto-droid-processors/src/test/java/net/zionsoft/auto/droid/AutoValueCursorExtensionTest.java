@@ -49,17 +49,60 @@ public class AutoValueCursorExtensionTest {
                 + "package net.zionsoft.auto.droid.test;\n"
                 + "\n"
                 + "import android.database.Cursor;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "\n"
                 + "final class AutoValue_SmokeTest extends $AutoValue_SmokeTest {\n"
+                + "  public static final String[] PROJECTION = {\"an_int\"};\n"
+                + "\n"
                 + "  AutoValue_SmokeTest(int anInt) {\n"
                 + "    super(anInt);\n"
                 + "  }\n"
                 + "\n"
                 + "  static AutoValue_SmokeTest createFromCursor(Cursor cursor) {\n"
-                + "    int anInt = cursor.getInt(cursor.getColumnIndexOrThrow(\"an_int\"));\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_SmokeTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    int anInt = cursor.getInt(0);\n"
                 + "    return new AutoValue_SmokeTest(anInt);\n"
                 + "  }\n"
-                + "}\n");
+                + "\n"
+                + "  static List<SmokeTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<SmokeTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static SmokeTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    SmokeTest[] array = new SmokeTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int anIntIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_SmokeTest map(Cursor cursor) {\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      return new AutoValue_SmokeTest(anInt);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
 
         Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
                 .that(Collections.singletonList(source))
@@ -121,27 +164,55 @@ public class AutoValueCursorExtensionTest {
                 + "import java.lang.Override;\n"
                 + "import java.lang.Short;\n"
                 + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "\n"
                 + "final class AutoValue_AllTypesTest extends $AutoValue_AllTypesTest {\n"
+                + "  public static final String[] PROJECTION = {\"a_blob\", \"a_double\", \"another_double\", \"a_float\", \"another_float\", \"an_int\", \"another_int\", \"a_long\", \"another_long\", \"a_short\", \"another_short\", \"a_string\"};\n"
+                + "\n"
                 + "  AutoValue_AllTypesTest(byte[] aBlob, double aDouble, Double anotherDouble, float aFloat, Float anotherFloat, int anInt, Integer anotherInt, long aLong, Long anotherLong, short aShort, Short anotherShort, String aString) {\n"
                 + "    super(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString);\n"
                 + "  }\n"
                 + "\n"
                 + "  static AutoValue_AllTypesTest createFromCursor(Cursor cursor) {\n"
-                + "      byte[] aBlob = cursor.getBlob(cursor.getColumnIndexOrThrow(\"a_blob\"));\n"
-                + "      double aDouble = cursor.getDouble(cursor.getColumnIndexOrThrow(\"a_double\"));\n"
-                + "      double anotherDouble = cursor.getDouble(cursor.getColumnIndexOrThrow(\"another_double\"));\n"
-                + "      float aFloat = cursor.getFloat(cursor.getColumnIndexOrThrow(\"a_float\"));\n"
-                + "      float anotherFloat = cursor.getFloat(cursor.getColumnIndexOrThrow(\"another_float\"));\n"
-                + "      int anInt = cursor.getInt(cursor.getColumnIndexOrThrow(\"an_int\"));\n"
-                + "      int anotherInt = cursor.getInt(cursor.getColumnIndexOrThrow(\"another_int\"));\n"
-                + "      long aLong = cursor.getLong(cursor.getColumnIndexOrThrow(\"a_long\"));\n"
-                + "      long anotherLong = cursor.getLong(cursor.getColumnIndexOrThrow(\"another_long\"));\n"
-                + "      short aShort = cursor.getShort(cursor.getColumnIndexOrThrow(\"a_short\"));\n"
-                + "      short anotherShort = cursor.getShort(cursor.getColumnIndexOrThrow(\"another_short\"));\n"
-                + "      String aString = cursor.getString(cursor.getColumnIndexOrThrow(\"a_string\"));\n"
-                + "      return new AutoValue_AllTypesTest(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString);\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_AllTypesTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    byte[] aBlob = cursor.getBlob(0);\n"
+                + "    double aDouble = cursor.getDouble(1);\n"
+                + "    double anotherDouble = cursor.getDouble(2);\n"
+                + "    float aFloat = cursor.getFloat(3);\n"
+                + "    float anotherFloat = cursor.getFloat(4);\n"
+                + "    int anInt = cursor.getInt(5);\n"
+                + "    int anotherInt = cursor.getInt(6);\n"
+                + "    long aLong = cursor.getLong(7);\n"
+                + "    long anotherLong = cursor.getLong(8);\n"
+                + "    short aShort = cursor.getShort(9);\n"
+                + "    short anotherShort = cursor.getShort(10);\n"
+                + "    String aString = cursor.getString(11);\n"
+                + "    return new AutoValue_AllTypesTest(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<AllTypesTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<AllTypesTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static AllTypesTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    AllTypesTest[] array = new AllTypesTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
                 + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
                 + "\n"
                 + "  @Override\n"
                 + "  public ContentValues toContentValues() {\n"
@@ -160,7 +231,54 @@ public class AutoValueCursorExtensionTest {
                 + "    contentValues.put(\"a_string\", aString());\n"
                 + "    return contentValues;\n"
                 + "  }\n"
-                + "}\n");
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int aBlobIndex;\n"
+                + "    private final int aDoubleIndex;\n"
+                + "    private final int anotherDoubleIndex;\n"
+                + "    private final int aFloatIndex;\n"
+                + "    private final int anotherFloatIndex;\n"
+                + "    private final int anIntIndex;\n"
+                + "    private final int anotherIntIndex;\n"
+                + "    private final int aLongIndex;\n"
+                + "    private final int anotherLongIndex;\n"
+                + "    private final int aShortIndex;\n"
+                + "    private final int anotherShortIndex;\n"
+                + "    private final int aStringIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      aBlobIndex = cursor.getColumnIndexOrThrow(\"a_blob\");\n"
+                + "      aDoubleIndex = cursor.getColumnIndexOrThrow(\"a_double\");\n"
+                + "      anotherDoubleIndex = cursor.getColumnIndexOrThrow(\"another_double\");\n"
+                + "      aFloatIndex = cursor.getColumnIndexOrThrow(\"a_float\");\n"
+                + "      anotherFloatIndex = cursor.getColumnIndexOrThrow(\"another_float\");\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "      anotherIntIndex = cursor.getColumnIndexOrThrow(\"another_int\");\n"
+                + "      aLongIndex = cursor.getColumnIndexOrThrow(\"a_long\");\n"
+                + "      anotherLongIndex = cursor.getColumnIndexOrThrow(\"another_long\");\n"
+                + "      aShortIndex = cursor.getColumnIndexOrThrow(\"a_short\");\n"
+                + "      anotherShortIndex = cursor.getColumnIndexOrThrow(\"another_short\");\n"
+                + "      aStringIndex = cursor.getColumnIndexOrThrow(\"a_string\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_AllTypesTest map(Cursor cursor) {\n"
+                + "      byte[] aBlob = cursor.getBlob(aBlobIndex);\n"
+                + "      double aDouble = cursor.getDouble(aDoubleIndex);\n"
+                + "      double anotherDouble = cursor.getDouble(anotherDoubleIndex);\n"
+                + "      float aFloat = cursor.getFloat(aFloatIndex);\n"
+                + "      float anotherFloat = cursor.getFloat(anotherFloatIndex);\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      int anotherInt = cursor.getInt(anotherIntIndex);\n"
+                + "      long aLong = cursor.getLong(aLongIndex);\n"
+                + "      long anotherLong = cursor.getLong(anotherLongIndex);\n"
+                + "      short aShort = cursor.getShort(aShortIndex);\n"
+                + "      short anotherShort = cursor.getShort(anotherShortIndex);\n"
+                + "      String aString = cursor.getString(aStringIndex);\n"
+                + "      return new AutoValue_AllTypesTest(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
 
         Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
                 .that(Collections.singletonList(source))
@@ -227,46 +345,77 @@ public class AutoValueCursorExtensionTest {
                 + "\n"
                 + "import android.content.ContentValues;\n"
                 + "import android.database.Cursor;\n"
+                + "import android.database.sqlite.SQLiteDatabase;\n"
                 + "import java.lang.Double;\n"
                 + "import java.lang.Float;\n"
+                + "import java.lang.IllegalArgumentException;\n"
                 + "import java.lang.Integer;\n"
                 + "import java.lang.Long;\n"
                 + "import java.lang.Override;\n"
                 + "import java.lang.Short;\n"
                 + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.Iterator;\n"
+                + "import java.util.List;\n"
                 + "\n"
                 + "final class AutoValue_NotAnnotatedTest extends $AutoValue_NotAnnotatedTest {\n"
+                + "  public static final String[] PROJECTION = {\"a_blob\", \"a_double\", \"another_double\", \"a_float\", \"another_float\", \"an_int\", \"another_int\", \"a_long\", \"another_long\", \"a_short\", \"another_short\", \"a_string\"};\n"
+                + "\n"
                 + "  AutoValue_NotAnnotatedTest(byte[] aBlob, double aDouble, Double anotherDouble, float aFloat, Float anotherFloat, int anInt, Integer anotherInt, long aLong, Long anotherLong, short aShort, Short anotherShort, String aString, byte[] aNotAnnotatedBlob, double aNotAnnotatedDouble, Double anotherNotAnnotatedDouble, float aNotAnnotatedFloat, Float anotherNotAnnotatedFloat, int aNotAnnotatedInt, Integer anotherNotAnnotatedInt, long aNotAnnotatedLong, Long anotherNotAnnotatedLong, short aNotAnnotatedShort, Short anotherNotAnnotatedShort, String aNotAnnotatedString) {\n"
                 + "    super(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString, aNotAnnotatedBlob, aNotAnnotatedDouble, anotherNotAnnotatedDouble, aNotAnnotatedFloat, anotherNotAnnotatedFloat, aNotAnnotatedInt, anotherNotAnnotatedInt, aNotAnnotatedLong, anotherNotAnnotatedLong, aNotAnnotatedShort, anotherNotAnnotatedShort, aNotAnnotatedString);\n"
                 + "  }\n"
                 + "\n"
                 + "  static AutoValue_NotAnnotatedTest createFromCursor(Cursor cursor) {\n"
-                + "      byte[] aBlob = cursor.getBlob(cursor.getColumnIndexOrThrow(\"a_blob\"));\n"
-                + "      double aDouble = cursor.getDouble(cursor.getColumnIndexOrThrow(\"a_double\"));\n"
-                + "      double anotherDouble = cursor.getDouble(cursor.getColumnIndexOrThrow(\"another_double\"));\n"
-                + "      float aFloat = cursor.getFloat(cursor.getColumnIndexOrThrow(\"a_float\"));\n"
-                + "      float anotherFloat = cursor.getFloat(cursor.getColumnIndexOrThrow(\"another_float\"));\n"
-                + "      int anInt = cursor.getInt(cursor.getColumnIndexOrThrow(\"an_int\"));\n"
-                + "      int anotherInt = cursor.getInt(cursor.getColumnIndexOrThrow(\"another_int\"));\n"
-                + "      long aLong = cursor.getLong(cursor.getColumnIndexOrThrow(\"a_long\"));\n"
-                + "      long anotherLong = cursor.getLong(cursor.getColumnIndexOrThrow(\"another_long\"));\n"
-                + "      short aShort = cursor.getShort(cursor.getColumnIndexOrThrow(\"a_short\"));\n"
-                + "      short anotherShort = cursor.getShort(cursor.getColumnIndexOrThrow(\"another_short\"));\n"
-                + "      String aString = cursor.getString(cursor.getColumnIndexOrThrow(\"a_string\"));\n"
-                + "      byte[] aNotAnnotatedBlob = null;\n"
-                + "      double aNotAnnotatedDouble = 0.0;\n"
-                + "      double anotherNotAnnotatedDouble = 0.0;\n"
-                + "      float aNotAnnotatedFloat = 0.0F;\n"
-                + "      float anotherNotAnnotatedFloat = 0.0F;\n"
-                + "      int aNotAnnotatedInt = 0;\n"
-                + "      int anotherNotAnnotatedInt = 0;\n"
-                + "      long aNotAnnotatedLong = 0L;\n"
-                + "      long anotherNotAnnotatedLong = 0L;\n"
-                + "      short aNotAnnotatedShort = 0;\n"
-                + "      short anotherNotAnnotatedShort = 0;\n"
-                + "      String aNotAnnotatedString = null;\n"
-                + "      return new AutoValue_NotAnnotatedTest(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString, aNotAnnotatedBlob, aNotAnnotatedDouble, anotherNotAnnotatedDouble, aNotAnnotatedFloat, anotherNotAnnotatedFloat, aNotAnnotatedInt, anotherNotAnnotatedInt, aNotAnnotatedLong, anotherNotAnnotatedLong, aNotAnnotatedShort, anotherNotAnnotatedShort, aNotAnnotatedString);\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_NotAnnotatedTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    byte[] aBlob = cursor.getBlob(0);\n"
+                + "    double aDouble = cursor.getDouble(1);\n"
+                + "    double anotherDouble = cursor.getDouble(2);\n"
+                + "    float aFloat = cursor.getFloat(3);\n"
+                + "    float anotherFloat = cursor.getFloat(4);\n"
+                + "    int anInt = cursor.getInt(5);\n"
+                + "    int anotherInt = cursor.getInt(6);\n"
+                + "    long aLong = cursor.getLong(7);\n"
+                + "    long anotherLong = cursor.getLong(8);\n"
+                + "    short aShort = cursor.getShort(9);\n"
+                + "    short anotherShort = cursor.getShort(10);\n"
+                + "    String aString = cursor.getString(11);\n"
+                + "    byte[] aNotAnnotatedBlob = null;\n"
+                + "    double aNotAnnotatedDouble = 0.0;\n"
+                + "    double anotherNotAnnotatedDouble = 0.0;\n"
+                + "    float aNotAnnotatedFloat = 0.0F;\n"
+                + "    float anotherNotAnnotatedFloat = 0.0F;\n"
+                + "    int aNotAnnotatedInt = 0;\n"
+                + "    int anotherNotAnnotatedInt = 0;\n"
+                + "    long aNotAnnotatedLong = 0L;\n"
+                + "    long anotherNotAnnotatedLong = 0L;\n"
+                + "    short aNotAnnotatedShort = 0;\n"
+                + "    short anotherNotAnnotatedShort = 0;\n"
+                + "    String aNotAnnotatedString = null;\n"
+                + "    return new AutoValue_NotAnnotatedTest(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString, aNotAnnotatedBlob, aNotAnnotatedDouble, anotherNotAnnotatedDouble, aNotAnnotatedFloat, anotherNotAnnotatedFloat, aNotAnnotatedInt, anotherNotAnnotatedInt, aNotAnnotatedLong, anotherNotAnnotatedLong, aNotAnnotatedShort, anotherNotAnnotatedShort, aNotAnnotatedString);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<NotAnnotatedTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<NotAnnotatedTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static NotAnnotatedTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    NotAnnotatedTest[] array = new NotAnnotatedTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
                 + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
                 + "\n"
                 + "  @Override\n"
                 + "  public ContentValues toContentValuesWithParam(ContentValues contentValues) {\n"
@@ -287,7 +436,87 @@ public class AutoValueCursorExtensionTest {
                 + "    contentValues.put(\"a_string\", aString());\n"
                 + "    return contentValues;\n"
                 + "  }\n"
-                + "}\n");
+                + "\n"
+                + "  static void insertAll(SQLiteDatabase database, String table, List<? extends NotAnnotatedTest> values, int chunkSize) {\n"
+                + "    if (chunkSize <= 0) {\n"
+                + "      throw new IllegalArgumentException(\"chunkSize must be positive: \" + chunkSize);\n"
+                + "    }\n"
+                + "    ContentValues contentValues = new ContentValues(12);\n"
+                + "    Iterator<? extends NotAnnotatedTest> iterator = values.iterator();\n"
+                + "    while (iterator.hasNext()) {\n"
+                + "      database.beginTransaction();\n"
+                + "      try {\n"
+                + "        for (int i = 0; i < chunkSize && iterator.hasNext(); ++i) {\n"
+                + "          contentValues.clear();\n"
+                + "          iterator.next().toContentValuesWithParam(contentValues);\n"
+                + "          database.insertOrThrow(table, null, contentValues);\n"
+                + "        }\n"
+                + "        database.setTransactionSuccessful();\n"
+                + "      } finally {\n"
+                + "        database.endTransaction();\n"
+                + "      }\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int aBlobIndex;\n"
+                + "    private final int aDoubleIndex;\n"
+                + "    private final int anotherDoubleIndex;\n"
+                + "    private final int aFloatIndex;\n"
+                + "    private final int anotherFloatIndex;\n"
+                + "    private final int anIntIndex;\n"
+                + "    private final int anotherIntIndex;\n"
+                + "    private final int aLongIndex;\n"
+                + "    private final int anotherLongIndex;\n"
+                + "    private final int aShortIndex;\n"
+                + "    private final int anotherShortIndex;\n"
+                + "    private final int aStringIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      aBlobIndex = cursor.getColumnIndexOrThrow(\"a_blob\");\n"
+                + "      aDoubleIndex = cursor.getColumnIndexOrThrow(\"a_double\");\n"
+                + "      anotherDoubleIndex = cursor.getColumnIndexOrThrow(\"another_double\");\n"
+                + "      aFloatIndex = cursor.getColumnIndexOrThrow(\"a_float\");\n"
+                + "      anotherFloatIndex = cursor.getColumnIndexOrThrow(\"another_float\");\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "      anotherIntIndex = cursor.getColumnIndexOrThrow(\"another_int\");\n"
+                + "      aLongIndex = cursor.getColumnIndexOrThrow(\"a_long\");\n"
+                + "      anotherLongIndex = cursor.getColumnIndexOrThrow(\"another_long\");\n"
+                + "      aShortIndex = cursor.getColumnIndexOrThrow(\"a_short\");\n"
+                + "      anotherShortIndex = cursor.getColumnIndexOrThrow(\"another_short\");\n"
+                + "      aStringIndex = cursor.getColumnIndexOrThrow(\"a_string\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_NotAnnotatedTest map(Cursor cursor) {\n"
+                + "      byte[] aBlob = cursor.getBlob(aBlobIndex);\n"
+                + "      double aDouble = cursor.getDouble(aDoubleIndex);\n"
+                + "      double anotherDouble = cursor.getDouble(anotherDoubleIndex);\n"
+                + "      float aFloat = cursor.getFloat(aFloatIndex);\n"
+                + "      float anotherFloat = cursor.getFloat(anotherFloatIndex);\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      int anotherInt = cursor.getInt(anotherIntIndex);\n"
+                + "      long aLong = cursor.getLong(aLongIndex);\n"
+                + "      long anotherLong = cursor.getLong(anotherLongIndex);\n"
+                + "      short aShort = cursor.getShort(aShortIndex);\n"
+                + "      short anotherShort = cursor.getShort(anotherShortIndex);\n"
+                + "      String aString = cursor.getString(aStringIndex);\n"
+                + "      byte[] aNotAnnotatedBlob = null;\n"
+                + "      double aNotAnnotatedDouble = 0.0;\n"
+                + "      double anotherNotAnnotatedDouble = 0.0;\n"
+                + "      float aNotAnnotatedFloat = 0.0F;\n"
+                + "      float anotherNotAnnotatedFloat = 0.0F;\n"
+                + "      int aNotAnnotatedInt = 0;\n"
+                + "      int anotherNotAnnotatedInt = 0;\n"
+                + "      long aNotAnnotatedLong = 0L;\n"
+                + "      long anotherNotAnnotatedLong = 0L;\n"
+                + "      short aNotAnnotatedShort = 0;\n"
+                + "      short anotherNotAnnotatedShort = 0;\n"
+                + "      String aNotAnnotatedString = null;\n"
+                + "      return new AutoValue_NotAnnotatedTest(aBlob, aDouble, anotherDouble, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aShort, anotherShort, aString, aNotAnnotatedBlob, aNotAnnotatedDouble, anotherNotAnnotatedDouble, aNotAnnotatedFloat, anotherNotAnnotatedFloat, aNotAnnotatedInt, anotherNotAnnotatedInt, aNotAnnotatedLong, anotherNotAnnotatedLong, aNotAnnotatedShort, anotherNotAnnotatedShort, aNotAnnotatedString);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
 
         Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
                 .that(Collections.singletonList(source))
@@ -379,17 +608,53 @@ public class AutoValueCursorExtensionTest {
                 + "package net.zionsoft.auto.droid.test;\n"
                 + "\n"
                 + "import android.database.Cursor;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "\n"
                 + "final class AutoValue_ColumnAdapterClient extends $AutoValue_ColumnAdapterClient {\n"
-                + "  AutoValue_SmokeTest(CustomColumnAdapter anAdapter) {\n"
+                + "  public static final String[] PROJECTION = {};\n"
+                + "\n"
+                + "  AutoValue_ColumnAdapterClient(CustomColumnAdapter anAdapter) {\n"
                 + "    super(anAdapter);\n"
                 + "  }\n"
                 + "\n"
                 + "  static AutoValue_ColumnAdapterClient createFromCursor(Cursor cursor) {\n"
-                + "    CustomColumnAdapter anAdapter = CustomColumnAdapter.fromCursor(cursor);\n"
-                + "    return new AutoValue_ColumnAdapterClient(anAdapter);\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
                 + "  }\n"
-                + "}\n");
+                + "\n"
+                + "  static List<ColumnAdapterClient> listFromCursor(Cursor cursor) {\n"
+                + "    List<ColumnAdapterClient> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static ColumnAdapterClient[] arrayFromCursor(Cursor cursor) {\n"
+                + "    ColumnAdapterClient[] array = new ColumnAdapterClient[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_ColumnAdapterClient map(Cursor cursor) {\n"
+                + "      CustomColumnAdapter anAdapter = CustomColumnAdapter.fromCursor(cursor);\n"
+                + "      return new AutoValue_ColumnAdapterClient(anAdapter);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
 
         Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
                 .that(Arrays.asList(columnAdapter, columnAdapterClient))
@@ -436,15 +701,39 @@ public class AutoValueCursorExtensionTest {
                 + "import android.content.ContentValues;\n"
                 + "import android.database.Cursor;\n"
                 + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "\n"
                 + "final class AutoValue_ColumnAdapterClient extends $AutoValue_ColumnAdapterClient {\n"
-                + "  AutoValue_SmokeTest(CustomColumnAdapter anAdapter) {\n"
+                + "  public static final String[] PROJECTION = {};\n"
+                + "\n"
+                + "  AutoValue_ColumnAdapterClient(CustomColumnAdapter anAdapter) {\n"
                 + "    super(anAdapter);\n"
                 + "  }\n"
                 + "\n"
                 + "  static AutoValue_ColumnAdapterClient createFromCursor(Cursor cursor) {\n"
-                + "    CustomColumnAdapter anAdapter = CustomColumnAdapter.fromCursor(cursor);\n"
-                + "    return new AutoValue_ColumnAdapterClient(anAdapter);\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<ColumnAdapterClient> listFromCursor(Cursor cursor) {\n"
+                + "    List<ColumnAdapterClient> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static ColumnAdapterClient[] arrayFromCursor(Cursor cursor) {\n"
+                + "    ColumnAdapterClient[] array = new ColumnAdapterClient[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
                 + "  }\n"
                 + "\n"
                 + "  @Override\n"
@@ -453,7 +742,19 @@ public class AutoValueCursorExtensionTest {
                 + "    contentValues.putAll(anAdapter().toContentValues());\n"
                 + "    return contentValues;\n"
                 + "  }\n"
-                + "}\n");
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_ColumnAdapterClient map(Cursor cursor) {\n"
+                + "      CustomColumnAdapter anAdapter = CustomColumnAdapter.fromCursor(cursor);\n"
+                + "      return new AutoValue_ColumnAdapterClient(anAdapter);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
 
         Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
                 .that(Arrays.asList(columnAdapter, columnAdapterClient))
@@ -498,15 +799,39 @@ public class AutoValueCursorExtensionTest {
                 + "import android.content.ContentValues;\n"
                 + "import android.database.Cursor;\n"
                 + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
                 + "\n"
                 + "final class AutoValue_ColumnAdapterClient extends $AutoValue_ColumnAdapterClient {\n"
-                + "  AutoValue_SmokeTest(CustomColumnAdapter anAdapter) {\n"
+                + "  public static final String[] PROJECTION = {};\n"
+                + "\n"
+                + "  AutoValue_ColumnAdapterClient(CustomColumnAdapter anAdapter) {\n"
                 + "    super(anAdapter);\n"
                 + "  }\n"
                 + "\n"
                 + "  static AutoValue_ColumnAdapterClient createFromCursor(Cursor cursor) {\n"
-                + "    CustomColumnAdapter anAdapter = CustomColumnAdapter.fromCursor(cursor);\n"
-                + "    return new AutoValue_ColumnAdapterClient(anAdapter);\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<ColumnAdapterClient> listFromCursor(Cursor cursor) {\n"
+                + "    List<ColumnAdapterClient> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static ColumnAdapterClient[] arrayFromCursor(Cursor cursor) {\n"
+                + "    ColumnAdapterClient[] array = new ColumnAdapterClient[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
                 + "  }\n"
                 + "\n"
                 + "  @Override\n"
@@ -515,7 +840,19 @@ public class AutoValueCursorExtensionTest {
                 + "    anAdapter().toContentValues(contentValues);\n"
                 + "    return contentValues;\n"
                 + "  }\n"
-                + "}\n");
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_ColumnAdapterClient map(Cursor cursor) {\n"
+                + "      CustomColumnAdapter anAdapter = CustomColumnAdapter.fromCursor(cursor);\n"
+                + "      return new AutoValue_ColumnAdapterClient(anAdapter);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
 
         Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
                 .that(Arrays.asList(columnAdapter, columnAdapterClient))
@@ -524,4 +861,1030 @@ public class AutoValueCursorExtensionTest {
                 .and()
                 .generatesSources(expected);
     }
+
+    @Test
+    public void bindTo() {
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.BindToTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.database.sqlite.SQLiteStatement;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "import net.zionsoft.auto.droid.TableName;\n"
+                + "@AutoValue\n"
+                + "@TableName(\"a_table\")\n"
+                + "public abstract class BindToTest {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "    @ColumnName(\"a_long\")\n"
+                + "    abstract Long aLong();\n"
+                + "    @ColumnName(\"a_float\")\n"
+                + "    abstract float aFloat();\n"
+                + "    @ColumnName(\"a_string\")\n"
+                + "    @Nullable\n"
+                + "    abstract String aString();\n"
+                + "    abstract String notAnnotated();\n"
+                + "    abstract void bindTo(SQLiteStatement statement);\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_BindToTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.database.Cursor;\n"
+                + "import android.database.sqlite.SQLiteStatement;\n"
+                + "import java.lang.Long;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_BindToTest extends $AutoValue_BindToTest {\n"
+                + "  public static final String[] PROJECTION = {\"an_int\", \"a_long\", \"a_float\", \"a_string\"};\n"
+                + "\n"
+                + "  public static final String INSERT_SQL = \"INSERT INTO a_table (an_int, a_long, a_float, a_string) VALUES (?, ?, ?, ?)\";\n"
+                + "\n"
+                + "  public static final String UPDATE_SQL = \"UPDATE a_table SET an_int = ?, a_long = ?, a_float = ?, a_string = ?\";\n"
+                + "\n"
+                + "  AutoValue_BindToTest(int anInt, Long aLong, float aFloat, String aString, String notAnnotated) {\n"
+                + "    super(anInt, aLong, aFloat, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_BindToTest createFromCursor(Cursor cursor) {\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_BindToTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    int anInt = cursor.getInt(0);\n"
+                + "    long aLong = cursor.getLong(1);\n"
+                + "    float aFloat = cursor.getFloat(2);\n"
+                + "    String aString = cursor.getString(3);\n"
+                + "    String notAnnotated = null;\n"
+                + "    return new AutoValue_BindToTest(anInt, aLong, aFloat, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<BindToTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<BindToTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static BindToTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    BindToTest[] array = new BindToTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  void bindTo(SQLiteStatement statement) {\n"
+                + "    statement.bindLong(1, anInt());\n"
+                + "    statement.bindLong(2, aLong());\n"
+                + "    statement.bindDouble(3, aFloat());\n"
+                + "    String aString = aString();\n"
+                + "    if (aString == null) {\n"
+                + "      statement.bindNull(4);\n"
+                + "    } else {\n"
+                + "      statement.bindString(4, aString);\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int anIntIndex;\n"
+                + "    private final int aLongIndex;\n"
+                + "    private final int aFloatIndex;\n"
+                + "    private final int aStringIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "      aLongIndex = cursor.getColumnIndexOrThrow(\"a_long\");\n"
+                + "      aFloatIndex = cursor.getColumnIndexOrThrow(\"a_float\");\n"
+                + "      aStringIndex = cursor.getColumnIndexOrThrow(\"a_string\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_BindToTest map(Cursor cursor) {\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      long aLong = cursor.getLong(aLongIndex);\n"
+                + "      float aFloat = cursor.getFloat(aFloatIndex);\n"
+                + "      String aString = cursor.getString(aStringIndex);\n"
+                + "      String notAnnotated = null;\n"
+                + "      return new AutoValue_BindToTest(anInt, aLong, aFloat, aString, notAnnotated);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(nullable, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void bindToIgnoresConcreteMethods() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.BindToTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.database.sqlite.SQLiteStatement;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "@AutoValue\n"
+                + "public abstract class BindToTest {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "    static void reset(SQLiteStatement statement) {\n"
+                + "    }\n"
+                + "    void log(SQLiteStatement statement) {\n"
+                + "    }\n"
+                + "    abstract void bindTo(SQLiteStatement statement);\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void diff() {
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.DiffTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.ContentValues;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "@AutoValue\n"
+                + "public abstract class DiffTest {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "    @ColumnName(\"a_long\")\n"
+                + "    abstract Long aLong();\n"
+                + "    @ColumnName(\"a_double\")\n"
+                + "    abstract double aDouble();\n"
+                + "    @ColumnName(\"a_blob\")\n"
+                + "    abstract byte[] aBlob();\n"
+                + "    @ColumnName(\"a_string\")\n"
+                + "    @Nullable\n"
+                + "    abstract String aString();\n"
+                + "    abstract String notAnnotated();\n"
+                + "    abstract long diff(DiffTest other);\n"
+                + "    abstract ContentValues toContentValues(DiffTest previous);\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_DiffTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.ContentValues;\n"
+                + "import android.database.Cursor;\n"
+                + "import java.lang.Double;\n"
+                + "import java.lang.Long;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.Arrays;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_DiffTest extends $AutoValue_DiffTest {\n"
+                + "  public static final String[] PROJECTION = {\"an_int\", \"a_long\", \"a_double\", \"a_blob\", \"a_string\"};\n"
+                + "\n"
+                + "  AutoValue_DiffTest(int anInt, Long aLong, double aDouble, byte[] aBlob, String aString, String notAnnotated) {\n"
+                + "    super(anInt, aLong, aDouble, aBlob, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_DiffTest createFromCursor(Cursor cursor) {\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_DiffTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    int anInt = cursor.getInt(0);\n"
+                + "    long aLong = cursor.getLong(1);\n"
+                + "    double aDouble = cursor.getDouble(2);\n"
+                + "    byte[] aBlob = cursor.getBlob(3);\n"
+                + "    String aString = cursor.getString(4);\n"
+                + "    String notAnnotated = null;\n"
+                + "    return new AutoValue_DiffTest(anInt, aLong, aDouble, aBlob, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<DiffTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<DiffTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static DiffTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    DiffTest[] array = new DiffTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  ContentValues toContentValues(DiffTest previous) {\n"
+                + "    ContentValues contentValues = new ContentValues(5);\n"
+                + "    if (previous == null || anInt() != previous.anInt()) {\n"
+                + "      contentValues.put(\"an_int\", anInt());\n"
+                + "    }\n"
+                + "    if (previous == null || !aLong().equals(previous.aLong())) {\n"
+                + "      contentValues.put(\"a_long\", aLong());\n"
+                + "    }\n"
+                + "    if (previous == null || Double.compare(aDouble(), previous.aDouble()) != 0) {\n"
+                + "      contentValues.put(\"a_double\", aDouble());\n"
+                + "    }\n"
+                + "    if (previous == null || !Arrays.equals(aBlob(), previous.aBlob())) {\n"
+                + "      contentValues.put(\"a_blob\", aBlob());\n"
+                + "    }\n"
+                + "    if (previous == null || aString() != previous.aString() && (aString() == null || !aString().equals(previous.aString()))) {\n"
+                + "      contentValues.put(\"a_string\", aString());\n"
+                + "    }\n"
+                + "    return contentValues;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  long diff(DiffTest other) {\n"
+                + "    long changed = 0L;\n"
+                + "    if (anInt() != other.anInt()) {\n"
+                + "      changed |= 1L << 0;\n"
+                + "    }\n"
+                + "    if (!aLong().equals(other.aLong())) {\n"
+                + "      changed |= 1L << 1;\n"
+                + "    }\n"
+                + "    if (Double.compare(aDouble(), other.aDouble()) != 0) {\n"
+                + "      changed |= 1L << 2;\n"
+                + "    }\n"
+                + "    if (!Arrays.equals(aBlob(), other.aBlob())) {\n"
+                + "      changed |= 1L << 3;\n"
+                + "    }\n"
+                + "    if (aString() != other.aString() && (aString() == null || !aString().equals(other.aString()))) {\n"
+                + "      changed |= 1L << 4;\n"
+                + "    }\n"
+                + "    if (!notAnnotated().equals(other.notAnnotated())) {\n"
+                + "      changed |= 1L << 5;\n"
+                + "    }\n"
+                + "    return changed;\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int anIntIndex;\n"
+                + "    private final int aLongIndex;\n"
+                + "    private final int aDoubleIndex;\n"
+                + "    private final int aBlobIndex;\n"
+                + "    private final int aStringIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "      aLongIndex = cursor.getColumnIndexOrThrow(\"a_long\");\n"
+                + "      aDoubleIndex = cursor.getColumnIndexOrThrow(\"a_double\");\n"
+                + "      aBlobIndex = cursor.getColumnIndexOrThrow(\"a_blob\");\n"
+                + "      aStringIndex = cursor.getColumnIndexOrThrow(\"a_string\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_DiffTest map(Cursor cursor) {\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      long aLong = cursor.getLong(aLongIndex);\n"
+                + "      double aDouble = cursor.getDouble(aDoubleIndex);\n"
+                + "      byte[] aBlob = cursor.getBlob(aBlobIndex);\n"
+                + "      String aString = cursor.getString(aStringIndex);\n"
+                + "      String notAnnotated = null;\n"
+                + "      return new AutoValue_DiffTest(anInt, aLong, aDouble, aBlob, aString, notAnnotated);\n"
+                + "    }\n"
+                + "  }\n"
+                + "        }\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(nullable, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void diffIgnoresConcreteMethods() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.DiffTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.ContentValues;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "@AutoValue\n"
+                + "public abstract class DiffTest implements Comparable<DiffTest> {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "    @Override\n"
+                + "    public int compareTo(DiffTest other) {\n"
+                + "        return anInt() - other.anInt();\n"
+                + "    }\n"
+                + "    static ContentValues merge(DiffTest other) {\n"
+                + "        return null;\n"
+                + "    }\n"
+                + "    abstract long diff(DiffTest other);\n"
+                + "    abstract ContentValues toContentValues(DiffTest previous);\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void iterableCursor() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.IterableTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "import net.zionsoft.auto.droid.IterableCursor;\n"
+                + "@AutoValue\n"
+                + "@IterableCursor\n"
+                + "public abstract class IterableTest {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_IterableTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.database.Cursor;\n"
+                + "import java.lang.IllegalStateException;\n"
+                + "import java.lang.Iterable;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.lang.UnsupportedOperationException;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.Iterator;\n"
+                + "import java.util.List;\n"
+                + "import java.util.NoSuchElementException;\n"
+                + "\n"
+                + "final class AutoValue_IterableTest extends $AutoValue_IterableTest {\n"
+                + "  public static final String[] PROJECTION = {\"an_int\"};\n"
+                + "\n"
+                + "  AutoValue_IterableTest(int anInt) {\n"
+                + "    super(anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_IterableTest createFromCursor(Cursor cursor) {\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_IterableTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    int anInt = cursor.getInt(0);\n"
+                + "    return new AutoValue_IterableTest(anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<IterableTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<IterableTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static IterableTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    IterableTest[] array = new IterableTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  static Iterable<IterableTest> iterableFromCursor(final Cursor cursor) {\n"
+                + "    return new Iterable<IterableTest>() {\n"
+                + "      private boolean iterated;\n"
+                + "      @Override\n"
+                + "      public Iterator<IterableTest> iterator() {\n"
+                + "        if (iterated) {\n"
+                + "          throw new IllegalStateException(\"iterableFromCursor() can only be iterated once\");\n"
+                + "        }\n"
+                + "        iterated = true;\n"
+                + "        return new CursorIterator(cursor);\n"
+                + "      }\n"
+                + "    };\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int anIntIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_IterableTest map(Cursor cursor) {\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      return new AutoValue_IterableTest(anInt);\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorIterator implements Iterator<IterableTest> {\n"
+                + "    private final Cursor cursor;\n"
+                + "    private final CursorMapper mapper;\n"
+                + "    private boolean hasNext;\n"
+                + "    CursorIterator(Cursor cursor) {\n"
+                + "      this.cursor = cursor;\n"
+                + "      this.mapper = CursorMapper.of(cursor);\n"
+                + "      advance(cursor.moveToFirst());\n"
+                + "    }\n"
+                + "    private void advance(boolean moved) {\n"
+                + "      hasNext = moved;\n"
+                + "      if (!moved) {\n"
+                + "        cursor.close();\n"
+                + "      }\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean hasNext() {\n"
+                + "      return hasNext;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public IterableTest next() {\n"
+                + "      if (!hasNext) {\n"
+                + "        throw new NoSuchElementException();\n"
+                + "      }\n"
+                + "      IterableTest next = mapper.map(cursor);\n"
+                + "      advance(cursor.moveToNext());\n"
+                + "      return next;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public void remove() {\n"
+                + "      throw new UnsupportedOperationException();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void cursorBackedView() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.ViewTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.ContentValues;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "import net.zionsoft.auto.droid.CursorBackedView;\n"
+                + "@AutoValue\n"
+                + "@CursorBackedView\n"
+                + "public abstract class ViewTest {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "    @ColumnName(\"a_string\")\n"
+                + "    abstract String aString();\n"
+                + "    abstract long notAnnotated();\n"
+                + "    abstract ContentValues toContentValues();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_ViewTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.ContentValues;\n"
+                + "import android.database.Cursor;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_ViewTest extends $AutoValue_ViewTest {\n"
+                + "  public static final String[] PROJECTION = {\"an_int\", \"a_string\"};\n"
+                + "\n"
+                + "  AutoValue_ViewTest(int anInt, String aString, long notAnnotated) {\n"
+                + "    super(anInt, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_ViewTest createFromCursor(Cursor cursor) {\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_ViewTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    int anInt = cursor.getInt(0);\n"
+                + "    String aString = cursor.getString(1);\n"
+                + "    long notAnnotated = 0L;\n"
+                + "    return new AutoValue_ViewTest(anInt, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<ViewTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<ViewTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static ViewTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    ViewTest[] array = new ViewTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  ContentValues toContentValues() {\n"
+                + "    ContentValues contentValues = new ContentValues(2);\n"
+                + "    contentValues.put(\"an_int\", anInt());\n"
+                + "    contentValues.put(\"a_string\", aString());\n"
+                + "    return contentValues;\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int anIntIndex;\n"
+                + "    private final int aStringIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "      aStringIndex = cursor.getColumnIndexOrThrow(\"a_string\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_ViewTest map(Cursor cursor) {\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      String aString = cursor.getString(aStringIndex);\n"
+                + "      long notAnnotated = 0L;\n"
+                + "      return new AutoValue_ViewTest(anInt, aString, notAnnotated);\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorView extends ViewTest {\n"
+                + "    private final Cursor cursor;\n"
+                + "    private final CursorMapper mapper;\n"
+                + "    CursorView(Cursor cursor) {\n"
+                + "      this.cursor = cursor;\n"
+                + "      this.mapper = CursorMapper.of(cursor);\n"
+                + "    }\n"
+                + "    boolean moveToPosition(int position) {\n"
+                + "      return cursor.moveToPosition(position);\n"
+                + "    }\n"
+                + "    AutoValue_ViewTest snapshot() {\n"
+                + "      return mapper.map(cursor);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    int anInt() {\n"
+                + "      return cursor.getInt(mapper.anIntIndex);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    String aString() {\n"
+                + "      return cursor.getString(mapper.aStringIndex);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    long notAnnotated() {\n"
+                + "      return 0L;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    ContentValues toContentValues() {\n"
+                + "      return snapshot().toContentValues();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean equals(Object o) {\n"
+                + "      return snapshot().equals(o);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int hashCode() {\n"
+                + "      return snapshot().hashCode();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String toString() {\n"
+                + "      return snapshot().toString();\n"
+                + "  }\n"
+                + "}\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void cursorBackedViewSnapshotProperty() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.ViewTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "import net.zionsoft.auto.droid.CursorBackedView;\n"
+                + "@AutoValue\n"
+                + "@CursorBackedView\n"
+                + "public abstract class ViewTest {\n"
+                + "    @ColumnName(\"snapshot\")\n"
+                + "    abstract String snapshot();\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@CursorBackedView does not support a property named `snapshot()`");
+    }
+
+    @Test
+    public void columnarCursor() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.ColumnsTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "import net.zionsoft.auto.droid.ColumnarCursor;\n"
+                + "@AutoValue\n"
+                + "@ColumnarCursor\n"
+                + "public abstract class ColumnsTest {\n"
+                + "    @ColumnName(\"size\")\n"
+                + "    abstract int size();\n"
+                + "    @ColumnName(\"row\")\n"
+                + "    abstract String row();\n"
+                + "    @SuppressWarnings(\"mutable\")\n"
+                + "    @ColumnName(\"a_blob\")\n"
+                + "    abstract byte[] aBlob();\n"
+                + "    abstract long notAnnotated();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_ColumnsTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.database.Cursor;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_ColumnsTest extends $AutoValue_ColumnsTest {\n"
+                + "  public static final String[] PROJECTION = {\"size\", \"row\", \"a_blob\"};\n"
+                + "\n"
+                + "  AutoValue_ColumnsTest(int size, String row, byte[] aBlob, long notAnnotated) {\n"
+                + "    super(size, row, aBlob, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_ColumnsTest createFromCursor(Cursor cursor) {\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_ColumnsTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    int size = cursor.getInt(0);\n"
+                + "    String row = cursor.getString(1);\n"
+                + "    byte[] aBlob = cursor.getBlob(2);\n"
+                + "    long notAnnotated = 0L;\n"
+                + "    return new AutoValue_ColumnsTest(size, row, aBlob, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<ColumnsTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<ColumnsTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static ColumnsTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    ColumnsTest[] array = new ColumnsTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int sizeIndex;\n"
+                + "    private final int rowIndex;\n"
+                + "    private final int aBlobIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      sizeIndex = cursor.getColumnIndexOrThrow(\"size\");\n"
+                + "      rowIndex = cursor.getColumnIndexOrThrow(\"row\");\n"
+                + "      aBlobIndex = cursor.getColumnIndexOrThrow(\"a_blob\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_ColumnsTest map(Cursor cursor) {\n"
+                + "      int size = cursor.getInt(sizeIndex);\n"
+                + "      String row = cursor.getString(rowIndex);\n"
+                + "      byte[] aBlob = cursor.getBlob(aBlobIndex);\n"
+                + "      long notAnnotated = 0L;\n"
+                + "      return new AutoValue_ColumnsTest(size, row, aBlob, notAnnotated);\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class Columns {\n"
+                + "    private final int size;\n"
+                + "    final int[] sizeColumn;\n"
+                + "    final String[] rowColumn;\n"
+                + "    final byte[][] aBlobColumn;\n"
+                + "    private Columns(int size) {\n"
+                + "      this.size = size;\n"
+                + "      this.sizeColumn = new int[size];\n"
+                + "      this.rowColumn = new String[size];\n"
+                + "      this.aBlobColumn = new byte[size][];\n"
+                + "    }\n"
+                + "    static Columns fromCursor(Cursor cursor) {\n"
+                + "      Columns columns = new Columns(cursor.getCount());\n"
+                + "      CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "      cursor.moveToPosition(-1);\n"
+                + "      for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "        columns.sizeColumn[i] = cursor.getInt(mapper.sizeIndex);\n"
+                + "        columns.rowColumn[i] = cursor.getString(mapper.rowIndex);\n"
+                + "        columns.aBlobColumn[i] = cursor.getBlob(mapper.aBlobIndex);\n"
+                + "      }\n"
+                + "      return columns;\n"
+                + "    }\n"
+                + "    int size() {\n"
+                + "      return size;\n"
+                + "    }\n"
+                + "    AutoValue_ColumnsTest get(int row) {\n"
+                + "      return new AutoValue_ColumnsTest(sizeColumn[row], rowColumn[row], aBlobColumn[row], 0L);\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void columnarCursorParameterizedType() {
+        final JavaFileObject columnAdapter = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Tags", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.database.Cursor;\n"
+                + "import java.util.ArrayList;\n"
+                + "public class Tags extends ArrayList<String> {\n"
+                + "  public static Tags fromCursor(Cursor cursor) { return null; }\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.GenericColumnsTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnAdapter;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "import net.zionsoft.auto.droid.ColumnarCursor;\n"
+                + "import java.util.List;\n"
+                + "@AutoValue\n"
+                + "@ColumnarCursor\n"
+                + "public abstract class GenericColumnsTest {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "    @ColumnAdapter(Tags.class)\n"
+                + "    abstract List<String> tags();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_GenericColumnsTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.database.Cursor;\n"
+                + "import java.lang.String;\n"
+                + "import java.lang.SuppressWarnings;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_GenericColumnsTest extends $AutoValue_GenericColumnsTest {\n"
+                + "  public static final String[] PROJECTION = {\"an_int\"};\n"
+                + "\n"
+                + "  AutoValue_GenericColumnsTest(int anInt, List<String> tags) {\n"
+                + "    super(anInt, tags);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_GenericColumnsTest createFromCursor(Cursor cursor) {\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<GenericColumnsTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<GenericColumnsTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static GenericColumnsTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    GenericColumnsTest[] array = new GenericColumnsTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int anIntIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_GenericColumnsTest map(Cursor cursor) {\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      List<String> tags = Tags.fromCursor(cursor);\n"
+                + "      return new AutoValue_GenericColumnsTest(anInt, tags);\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class Columns {\n"
+                + "    private final int size;\n"
+                + "    final int[] anIntColumn;\n"
+                + "    final List<String>[] tagsColumn;\n"
+                + "    @SuppressWarnings(\"unchecked\")\n"
+                + "    private Columns(int size) {\n"
+                + "      this.size = size;\n"
+                + "      this.anIntColumn = new int[size];\n"
+                + "      this.tagsColumn = (List<String>[]) new List[size];\n"
+                + "    }\n"
+                + "    static Columns fromCursor(Cursor cursor) {\n"
+                + "      Columns columns = new Columns(cursor.getCount());\n"
+                + "      CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "      cursor.moveToPosition(-1);\n"
+                + "      for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "        columns.anIntColumn[i] = cursor.getInt(mapper.anIntIndex);\n"
+                + "        columns.tagsColumn[i] = Tags.fromCursor(cursor);\n"
+                + "      }\n"
+                + "      return columns;\n"
+                + "    }\n"
+                + "    int size() {\n"
+                + "      return size;\n"
+                + "    }\n"
+                + "    AutoValue_GenericColumnsTest get(int row) {\n"
+                + "      return new AutoValue_GenericColumnsTest(anIntColumn[row], tagsColumn[row]);\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(columnAdapter, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void lazyCursorList() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.LazyListTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ColumnName;\n"
+                + "import net.zionsoft.auto.droid.LazyCursorList;\n"
+                + "@AutoValue\n"
+                + "@LazyCursorList\n"
+                + "public abstract class LazyListTest {\n"
+                + "    @ColumnName(\"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_LazyListTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.database.Cursor;\n"
+                + "import java.lang.IndexOutOfBoundsException;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.AbstractList;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.LinkedHashMap;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_LazyListTest extends $AutoValue_LazyListTest {\n"
+                + "  public static final String[] PROJECTION = {\"an_int\"};\n"
+                + "\n"
+                + "  AutoValue_LazyListTest(int anInt) {\n"
+                + "    super(anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_LazyListTest createFromCursor(Cursor cursor) {\n"
+                + "    return CursorMapper.of(cursor).map(cursor);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_LazyListTest createFromProjectedCursor(Cursor cursor) {\n"
+                + "    int anInt = cursor.getInt(0);\n"
+                + "    return new AutoValue_LazyListTest(anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<LazyListTest> listFromCursor(Cursor cursor) {\n"
+                + "    List<LazyListTest> list = new ArrayList<>(cursor.getCount());\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    while (cursor.moveToNext()) {\n"
+                + "      list.add(mapper.map(cursor));\n"
+                + "    }\n"
+                + "    return list;\n"
+                + "  }\n"
+                + "\n"
+                + "  static LazyListTest[] arrayFromCursor(Cursor cursor) {\n"
+                + "    LazyListTest[] array = new LazyListTest[cursor.getCount()];\n"
+                + "    CursorMapper mapper = CursorMapper.of(cursor);\n"
+                + "    cursor.moveToPosition(-1);\n"
+                + "    for (int i = 0; cursor.moveToNext(); ++i) {\n"
+                + "      array[i] = mapper.map(cursor);\n"
+                + "    }\n"
+                + "    return array;\n"
+                + "  }\n"
+                + "\n"
+                + "  static List<LazyListTest> lazyListFromCursor(Cursor cursor, int cacheSize) {\n"
+                + "    return new CursorList(cursor, cacheSize);\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorMapper {\n"
+                + "    private final int anIntIndex;\n"
+                + "    private CursorMapper(Cursor cursor) {\n"
+                + "      anIntIndex = cursor.getColumnIndexOrThrow(\"an_int\");\n"
+                + "    }\n"
+                + "    static CursorMapper of(Cursor cursor) {\n"
+                + "      return new CursorMapper(cursor);\n"
+                + "    }\n"
+                + "    AutoValue_LazyListTest map(Cursor cursor) {\n"
+                + "      int anInt = cursor.getInt(anIntIndex);\n"
+                + "      return new AutoValue_LazyListTest(anInt);\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class CursorList extends AbstractList<LazyListTest> {\n"
+                + "    private final Cursor cursor;\n"
+                + "    private final CursorMapper mapper;\n"
+                + "    private final int size;\n"
+                + "    private final LruCache cache;\n"
+                + "    CursorList(Cursor cursor, int cacheSize) {\n"
+                + "      this.cursor = cursor;\n"
+                + "      this.mapper = CursorMapper.of(cursor);\n"
+                + "      this.size = cursor.getCount();\n"
+                + "      this.cache = new LruCache(cacheSize);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public LazyListTest get(int position) {\n"
+                + "      LazyListTest value = cache.get(position);\n"
+                + "      if (value == null) {\n"
+                + "        if (!cursor.moveToPosition(position)) {\n"
+                + "          throw new IndexOutOfBoundsException(\"Invalid position \" + position + \", size is \" + size);\n"
+                + "        }\n"
+                + "        value = mapper.map(cursor);\n"
+                + "        cache.put(position, value);\n"
+                + "      }\n"
+                + "      return value;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int size() {\n"
+                + "      return size;\n"
+                + "    }\n"
+                + "    private static final class LruCache extends LinkedHashMap<Integer, LazyListTest> {\n"
+                + "      private static final long serialVersionUID = 1L;\n"
+                + "      private final int cacheSize;\n"
+                + "      LruCache(int cacheSize) {\n"
+                + "        super(16, 0.75F, true);\n"
+                + "        this.cacheSize = cacheSize;\n"
+                + "      }\n"
+                + "      @Override\n"
+                + "      protected boolean removeEldestEntry(Map.Entry<Integer, LazyListTest> eldest) {\n"
+                + "        return size() > cacheSize;\n"
+                + "      }\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
 }
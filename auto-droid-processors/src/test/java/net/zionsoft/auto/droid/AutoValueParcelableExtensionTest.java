@@ -23,6 +23,7 @@ import com.google.testing.compile.JavaSourcesSubjectFactory;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import javax.tools.JavaFileObject;
@@ -43,15 +44,13 @@ public class AutoValueParcelableExtensionTest {
                 + "package net.zionsoft.auto.droid.test;\n"
                 + "\n"
                 + "import android.os.Parcel;\n"
-                + "import java.lang.ClassLoader;\n"
                 + "import java.lang.Override;\n"
                 + "\n"
                 + "final class AutoValue_SmokeTest extends $AutoValue_SmokeTest {\n"
                 + "  public static final android.os.Parcelable.Creator<AutoValue_SmokeTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_SmokeTest>() {\n"
                 + "    @Override\n"
                 + "    public AutoValue_SmokeTest createFromParcel(Parcel in) {\n"
-                + "      ClassLoader classLoader = AutoValue_SmokeTest.class.getClassLoader();\n"
-                + "      boolean aBoolean = (boolean) in.readValue(classLoader);\n"
+                + "      boolean aBoolean = in.readInt() != 0;\n"
                 + "      return new AutoValue_SmokeTest(aBoolean);\n"
                 + "    }\n"
                 + "    @Override\n"
@@ -71,7 +70,444 @@ public class AutoValueParcelableExtensionTest {
                 + "\n"
                 + "  @Override\n"
                 + "  public void writeToParcel(Parcel dest, int flags) {\n"
-                + "    dest.writeValue(aBoolean());\n"
+                + "    dest.writeInt(aBoolean() ? 1 : 0);\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void allTypes() {
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AllTypesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.util.List;\n"
+                + "@AutoValue\n"
+                + "public abstract class AllTypesTest implements Parcelable {\n"
+                + "    abstract boolean aBoolean();\n"
+                + "    abstract byte aByte();\n"
+                + "    abstract char aChar();\n"
+                + "    abstract short aShort();\n"
+                + "    abstract int anInt();\n"
+                + "    abstract long aLong();\n"
+                + "    abstract float aFloat();\n"
+                + "    abstract double aDouble();\n"
+                + "    abstract Integer anInteger();\n"
+                + "    @Nullable\n"
+                + "    abstract Long aNullableLong();\n"
+                + "    abstract String aString();\n"
+                + "    @Nullable\n"
+                + "    abstract String aNullableString();\n"
+                + "    @SuppressWarnings(\"mutable\")\n"
+                + "    abstract byte[] aByteArray();\n"
+                + "    abstract List<String> aList();\n"
+                + "    @Nullable\n"
+                + "    abstract List<String> aNullableList();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_AllTypesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Long;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_AllTypesTest extends $AutoValue_AllTypesTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_AllTypesTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_AllTypesTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_AllTypesTest createFromParcel(Parcel in) {\n"
+                + "      int nullBits0 = in.readInt();\n"
+                + "      boolean aBoolean = in.readInt() != 0;\n"
+                + "      byte aByte = in.readByte();\n"
+                + "      char aChar = (char) in.readInt();\n"
+                + "      short aShort = (short) in.readInt();\n"
+                + "      int anInt = in.readInt();\n"
+                + "      long aLong = in.readLong();\n"
+                + "      float aFloat = in.readFloat();\n"
+                + "      double aDouble = in.readDouble();\n"
+                + "      Integer anInteger = in.readInt();\n"
+                + "      Long aNullableLong = (nullBits0 & 1 << 0) != 0 ? null : in.readLong();\n"
+                + "      String aString = in.readString();\n"
+                + "      String aNullableString = (nullBits0 & 1 << 1) != 0 ? null : in.readString();\n"
+                + "      byte[] aByteArray = in.createByteArray();\n"
+                + "      List<String> aList = in.createStringArrayList();\n"
+                + "      List<String> aNullableList = (nullBits0 & 1 << 2) != 0 ? null : in.createStringArrayList();\n"
+                + "      return new AutoValue_AllTypesTest(aBoolean, aByte, aChar, aShort, anInt, aLong, aFloat, aDouble, anInteger, aNullableLong, aString, aNullableString, aByteArray, aList, aNullableList);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_AllTypesTest[] newArray(int size) {\n"
+                + "      return new AutoValue_AllTypesTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  AutoValue_AllTypesTest(boolean aBoolean, byte aByte, char aChar, short aShort, int anInt, long aLong, float aFloat, double aDouble, Integer anInteger, Long aNullableLong, String aString, String aNullableString, byte[] aByteArray, List<String> aList, List<String> aNullableList) {\n"
+                + "    super(aBoolean, aByte, aChar, aShort, anInt, aLong, aFloat, aDouble, anInteger, aNullableLong, aString, aNullableString, aByteArray, aList, aNullableList);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    int nullBits0 = 0;\n"
+                + "    if (aNullableLong() == null) {\n"
+                + "      nullBits0 |= 1 << 0;\n"
+                + "    }\n"
+                + "    if (aNullableString() == null) {\n"
+                + "      nullBits0 |= 1 << 1;\n"
+                + "    }\n"
+                + "    if (aNullableList() == null) {\n"
+                + "      nullBits0 |= 1 << 2;\n"
+                + "    }\n"
+                + "    dest.writeInt(nullBits0);\n"
+                + "    dest.writeInt(aBoolean() ? 1 : 0);\n"
+                + "    dest.writeByte(aByte());\n"
+                + "    dest.writeInt(aChar());\n"
+                + "    dest.writeInt(aShort());\n"
+                + "    dest.writeInt(anInt());\n"
+                + "    dest.writeLong(aLong());\n"
+                + "    dest.writeFloat(aFloat());\n"
+                + "    dest.writeDouble(aDouble());\n"
+                + "    dest.writeInt(anInteger());\n"
+                + "    if (aNullableLong() != null) {\n"
+                + "      dest.writeLong(aNullableLong());\n"
+                + "    }\n"
+                + "    dest.writeString(aString());\n"
+                + "    if (aNullableString() != null) {\n"
+                + "      dest.writeString(aNullableString());\n"
+                + "    }\n"
+                + "    dest.writeByteArray(aByteArray());\n"
+                + "    dest.writeStringList(aList());\n"
+                + "    if (aNullableList() != null) {\n"
+                + "      dest.writeStringList(aNullableList());\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(nullable, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void nestedAutoValue() {
+        final JavaFileObject child = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Child", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "@AutoValue\n"
+                + "public abstract class Child implements Parcelable {\n"
+                + "    abstract int anInt();\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.NestedAutoValueTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "@AutoValue\n"
+                + "public abstract class NestedAutoValueTest implements Parcelable {\n"
+                + "    abstract Child child();\n"
+                + "    abstract Inner inner();\n"
+                + "    @AutoValue\n"
+                + "    public abstract static class Inner implements Parcelable {\n"
+                + "        abstract String aString();\n"
+                + "    }\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_NestedAutoValueTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.Override;\n"
+                + "\n"
+                + "final class AutoValue_NestedAutoValueTest extends $AutoValue_NestedAutoValueTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_NestedAutoValueTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_NestedAutoValueTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_NestedAutoValueTest createFromParcel(Parcel in) {\n"
+                + "      Child child = AutoValue_Child.CREATOR.createFromParcel(in);\n"
+                + "      NestedAutoValueTest.Inner inner = AutoValue_NestedAutoValueTest_Inner.CREATOR.createFromParcel(in);\n"
+                + "      return new AutoValue_NestedAutoValueTest(child, inner);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_NestedAutoValueTest[] newArray(int size) {\n"
+                + "      return new AutoValue_NestedAutoValueTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  AutoValue_NestedAutoValueTest(Child child, NestedAutoValueTest.Inner inner) {\n"
+                + "    super(child, inner);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    child().writeToParcel(dest, flags);\n"
+                + "    inner().writeToParcel(dest, flags);\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(child, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void collections() {
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject child = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Child", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "@AutoValue\n"
+                + "public abstract class Child implements Parcelable {\n"
+                + "    abstract int anInt();\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CollectionsTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Map;\n"
+                + "@AutoValue\n"
+                + "@SuppressWarnings(\"mutable\")\n"
+                + "public abstract class CollectionsTest implements Parcelable {\n"
+                + "    abstract int[] anIntArray();\n"
+                + "    abstract long[] aLongArray();\n"
+                + "    abstract List<String> aStringList();\n"
+                + "    abstract List<Child> children();\n"
+                + "    @Nullable\n"
+                + "    abstract List<Integer> integers();\n"
+                + "    abstract Map<String, Child> childMap();\n"
+                + "    abstract List<Object> objects();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_CollectionsTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.ClassLoader;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.HashMap;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_CollectionsTest extends $AutoValue_CollectionsTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_CollectionsTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_CollectionsTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_CollectionsTest createFromParcel(Parcel in) {\n"
+                + "      int nullBits0 = in.readInt();\n"
+                + "      int[] anIntArray = in.createIntArray();\n"
+                + "      long[] aLongArray = in.createLongArray();\n"
+                + "      List<String> aStringList = in.createStringArrayList();\n"
+                + "      List<Child> children = readChildrenCollection(in);\n"
+                + "      List<Integer> integers = (nullBits0 & 1 << 0) != 0 ? null : readIntegersCollection(in);\n"
+                + "      Map<String, Child> childMap = readChildMapCollection(in);\n"
+                + "      ClassLoader classLoader = AutoValue_CollectionsTest.class.getClassLoader();\n"
+                + "      List<Object> objects = (List<Object>) in.readValue(classLoader);\n"
+                + "      return new AutoValue_CollectionsTest(anIntArray, aLongArray, aStringList, children, integers, childMap, objects);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_CollectionsTest[] newArray(int size) {\n"
+                + "      return new AutoValue_CollectionsTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  AutoValue_CollectionsTest(int[] anIntArray, long[] aLongArray, List<String> aStringList, List<Child> children, List<Integer> integers, Map<String, Child> childMap, List<Object> objects) {\n"
+                + "    super(anIntArray, aLongArray, aStringList, children, integers, childMap, objects);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    int nullBits0 = 0;\n"
+                + "    if (integers() == null) {\n"
+                + "      nullBits0 |= 1 << 0;\n"
+                + "    }\n"
+                + "    dest.writeInt(nullBits0);\n"
+                + "    dest.writeIntArray(anIntArray());\n"
+                + "    dest.writeLongArray(aLongArray());\n"
+                + "    dest.writeStringList(aStringList());\n"
+                + "    dest.writeInt(children().size());\n"
+                + "    for (Child element : children()) {\n"
+                + "      element.writeToParcel(dest, flags);\n"
+                + "    }\n"
+                + "    if (integers() != null) {\n"
+                + "      dest.writeInt(integers().size());\n"
+                + "      for (Integer element : integers()) {\n"
+                + "        dest.writeInt(element);\n"
+                + "      }\n"
+                + "    }\n"
+                + "    dest.writeInt(childMap().size());\n"
+                + "    for (Map.Entry<String, Child> entry : childMap().entrySet()) {\n"
+                + "      dest.writeString(entry.getKey());\n"
+                + "      entry.getValue().writeToParcel(dest, flags);\n"
+                + "    }\n"
+                + "    dest.writeValue(objects());\n"
+                + "  }\n"
+                + "\n"
+                + "  private static List<Child> readChildrenCollection(Parcel in) {\n"
+                + "    int size = in.readInt();\n"
+                + "    List<Child> collection = new ArrayList<>(size);\n"
+                + "    for (int i = 0; i < size; ++i) {\n"
+                + "      collection.add(AutoValue_Child.CREATOR.createFromParcel(in));\n"
+                + "    }\n"
+                + "    return collection;\n"
+                + "  }\n"
+                + "\n"
+                + "  private static List<Integer> readIntegersCollection(Parcel in) {\n"
+                + "    int size = in.readInt();\n"
+                + "    List<Integer> collection = new ArrayList<>(size);\n"
+                + "    for (int i = 0; i < size; ++i) {\n"
+                + "      collection.add(in.readInt());\n"
+                + "    }\n"
+                + "    return collection;\n"
+                + "  }\n"
+                + "\n"
+                + "  private static Map<String, Child> readChildMapCollection(Parcel in) {\n"
+                + "    int size = in.readInt();\n"
+                + "    Map<String, Child> collection = new HashMap<>(size);\n"
+                + "    for (int i = 0; i < size; ++i) {\n"
+                + "      collection.put(in.readString(), AutoValue_Child.CREATOR.createFromParcel(in));\n"
+                + "    }\n"
+                + "    return collection;\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(nullable, child, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void serializableTypes() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.SerializableTypesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.io.Serializable;\n"
+                + "import java.math.BigDecimal;\n"
+                + "import java.math.BigInteger;\n"
+                + "import java.util.Date;\n"
+                + "import java.util.List;\n"
+                + "@AutoValue\n"
+                + "public abstract class SerializableTypesTest implements Parcelable {\n"
+                + "    abstract Color aColor();\n"
+                + "    abstract Date aDate();\n"
+                + "    abstract BigInteger aBigInteger();\n"
+                + "    abstract BigDecimal aBigDecimal();\n"
+                + "    abstract List<Color> colors();\n"
+                + "    abstract Custom aCustom();\n"
+                + "    enum Color {\n"
+                + "        RED, GREEN, BLUE\n"
+                + "    }\n"
+                + "    static class Custom implements Serializable {\n"
+                + "    }\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_SerializableTypesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.ClassLoader;\n"
+                + "import java.lang.Override;\n"
+                + "import java.math.BigDecimal;\n"
+                + "import java.math.BigInteger;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.Date;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_SerializableTypesTest extends $AutoValue_SerializableTypesTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_SerializableTypesTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_SerializableTypesTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_SerializableTypesTest createFromParcel(Parcel in) {\n"
+                + "      SerializableTypesTest.Color aColor = SerializableTypesTest.Color.values()[in.readInt()];\n"
+                + "      Date aDate = new Date(in.readLong());\n"
+                + "      BigInteger aBigInteger = new BigInteger(in.createByteArray());\n"
+                + "      BigDecimal aBigDecimal = new BigDecimal(new BigInteger(in.createByteArray()), in.readInt());\n"
+                + "      List<SerializableTypesTest.Color> colors = readColorsCollection(in);\n"
+                + "      ClassLoader classLoader = AutoValue_SerializableTypesTest.class.getClassLoader();\n"
+                + "      SerializableTypesTest.Custom aCustom = (SerializableTypesTest.Custom) in.readValue(classLoader);\n"
+                + "      return new AutoValue_SerializableTypesTest(aColor, aDate, aBigInteger, aBigDecimal, colors, aCustom);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_SerializableTypesTest[] newArray(int size) {\n"
+                + "      return new AutoValue_SerializableTypesTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  AutoValue_SerializableTypesTest(SerializableTypesTest.Color aColor, Date aDate, BigInteger aBigInteger, BigDecimal aBigDecimal, List<SerializableTypesTest.Color> colors, SerializableTypesTest.Custom aCustom) {\n"
+                + "    super(aColor, aDate, aBigInteger, aBigDecimal, colors, aCustom);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    dest.writeInt(aColor().ordinal());\n"
+                + "    dest.writeLong(aDate().getTime());\n"
+                + "    dest.writeByteArray(aBigInteger().toByteArray());\n"
+                + "    dest.writeByteArray(aBigDecimal().unscaledValue().toByteArray());\n"
+                + "    dest.writeInt(aBigDecimal().scale());\n"
+                + "    dest.writeInt(colors().size());\n"
+                + "    for (SerializableTypesTest.Color element : colors()) {\n"
+                + "      dest.writeInt(element.ordinal());\n"
+                + "    }\n"
+                + "    dest.writeValue(aCustom());\n"
+                + "  }\n"
+                + "\n"
+                + "  private static List<SerializableTypesTest.Color> readColorsCollection(Parcel in) {\n"
+                + "    int size = in.readInt();\n"
+                + "    List<SerializableTypesTest.Color> collection = new ArrayList<>(size);\n"
+                + "    for (int i = 0; i < size; ++i) {\n"
+                + "      collection.add(SerializableTypesTest.Color.values()[in.readInt()]);\n"
+                + "    }\n"
+                + "    return collection;\n"
                 + "  }\n"
                 + "}\n");
 
@@ -81,5 +517,982 @@ public class AutoValueParcelableExtensionTest {
                 .compilesWithoutError()
                 .and()
                 .generatesSources(expected);
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .withWarningContaining("Property `aCustom` will be written to parcel with Java serialization");
+    }
+
+    @Test
+    public void missingParcelAdapterMethod() {
+        final JavaFileObject parcelAdapter = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CustomParcelAdapter", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcel;\n"
+                + "public class CustomParcelAdapter {\n"
+                + "  public static void write(Custom value, Parcel dest) {}\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.ParcelAdapterTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ParcelAdapter;\n"
+                + "@AutoValue\n"
+                + "public abstract class ParcelAdapterTest implements Parcelable {\n"
+                + "    @ParcelAdapter(CustomParcelAdapter.class)\n"
+                + "    abstract Custom aCustom();\n"
+                + "}\n");
+
+        final JavaFileObject custom = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Custom", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public class Custom {\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(parcelAdapter, source, custom))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile();
+    }
+
+    @Test
+    public void parcelAdapter() {
+        final JavaFileObject parcelAdapter = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CustomParcelAdapter", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcel;\n"
+                + "public class CustomParcelAdapter {\n"
+                + "  public static void write2(Custom value) {}\n"
+                + "  public void write3(Custom value, Parcel dest) {}\n"
+                + "  public static String read2(Parcel in) { return null; }\n"
+                + "  public static void write(Custom value, Parcel dest) {}\n"
+                + "  public static Custom read(Parcel in) { return null; }\n"
+                + "}\n");
+
+        final JavaFileObject custom = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Custom", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public class Custom {\n"
+                + "}\n");
+
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.ParcelAdapterTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ParcelAdapter;\n"
+                + "@AutoValue\n"
+                + "public abstract class ParcelAdapterTest implements Parcelable {\n"
+                + "    @ParcelAdapter(CustomParcelAdapter.class)\n"
+                + "    abstract Custom aCustom();\n"
+                + "    @ParcelAdapter(CustomParcelAdapter.class)\n"
+                + "    @Nullable\n"
+                + "    abstract Custom aNullableCustom();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_ParcelAdapterTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.Override;\n"
+                + "\n"
+                + "final class AutoValue_ParcelAdapterTest extends $AutoValue_ParcelAdapterTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_ParcelAdapterTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_ParcelAdapterTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_ParcelAdapterTest createFromParcel(Parcel in) {\n"
+                + "      int nullBits0 = in.readInt();\n"
+                + "      Custom aCustom = CustomParcelAdapter.read(in);\n"
+                + "      Custom aNullableCustom = (nullBits0 & 1 << 0) != 0 ? null : CustomParcelAdapter.read(in);\n"
+                + "      return new AutoValue_ParcelAdapterTest(aCustom, aNullableCustom);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_ParcelAdapterTest[] newArray(int size) {\n"
+                + "      return new AutoValue_ParcelAdapterTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  AutoValue_ParcelAdapterTest(Custom aCustom, Custom aNullableCustom) {\n"
+                + "    super(aCustom, aNullableCustom);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    int nullBits0 = 0;\n"
+                + "    if (aNullableCustom() == null) {\n"
+                + "      nullBits0 |= 1 << 0;\n"
+                + "    }\n"
+                + "    dest.writeInt(nullBits0);\n"
+                + "    CustomParcelAdapter.write(aCustom(), dest);\n"
+                + "    if (aNullableCustom() != null) {\n"
+                + "      CustomParcelAdapter.write(aNullableCustom(), dest);\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(parcelAdapter, custom, nullable, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void cachedParcel() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CachedParcelTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.CachedParcel;\n"
+                + "@AutoValue\n"
+                + "@CachedParcel\n"
+                + "public abstract class CachedParcelTest implements Parcelable {\n"
+                + "    abstract int anInt();\n"
+                + "    abstract String aString();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_CachedParcelTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "\n"
+                + "final class AutoValue_CachedParcelTest extends $AutoValue_CachedParcelTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_CachedParcelTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_CachedParcelTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_CachedParcelTest createFromParcel(Parcel in) {\n"
+                + "      return unmarshall(in.createByteArray());\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_CachedParcelTest[] newArray(int size) {\n"
+                + "      return new AutoValue_CachedParcelTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  private volatile byte[] marshalled;\n"
+                + "\n"
+                + "  AutoValue_CachedParcelTest(int anInt, String aString) {\n"
+                + "    super(anInt, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    byte[] bytes = marshalled;\n"
+                + "    if (bytes == null) {\n"
+                + "      Parcel parcel = Parcel.obtain();\n"
+                + "      try {\n"
+                + "        writeProperties(parcel, flags);\n"
+                + "        bytes = parcel.marshall();\n"
+                + "      } finally {\n"
+                + "        parcel.recycle();\n"
+                + "      }\n"
+                + "      marshalled = bytes;\n"
+                + "    }\n"
+                + "    dest.writeByteArray(bytes);\n"
+                + "  }\n"
+                + "\n"
+                + "  private void writeProperties(Parcel dest, int flags) {\n"
+                + "    dest.writeInt(anInt());\n"
+                + "    dest.writeString(aString());\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_CachedParcelTest readProperties(Parcel in) {\n"
+                + "    int anInt = in.readInt();\n"
+                + "    String aString = in.readString();\n"
+                + "    return new AutoValue_CachedParcelTest(anInt, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_CachedParcelTest unmarshall(byte[] bytes) {\n"
+                + "    Parcel parcel = Parcel.obtain();\n"
+                + "    try {\n"
+                + "      parcel.unmarshall(bytes, 0, bytes.length);\n"
+                + "      parcel.setDataPosition(0);\n"
+                + "      AutoValue_CachedParcelTest value = readProperties(parcel);\n"
+                + "      value.marshalled = bytes;\n"
+                + "      return value;\n"
+                + "    } finally {\n"
+                + "      parcel.recycle();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void cachedParcelCollectionNames() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CachedParcelTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Map;\n"
+                + "import net.zionsoft.auto.droid.CachedParcel;\n"
+                + "import net.zionsoft.auto.droid.Compressed;\n"
+                + "@AutoValue\n"
+                + "@CachedParcel\n"
+                + "public abstract class CachedParcelTest implements Parcelable {\n"
+                + "    @Compressed\n"
+                + "    abstract String aString();\n"
+                + "    abstract List<Integer> properties();\n"
+                + "    abstract List<Long> compressed();\n"
+                + "    abstract Map<String, Integer> size();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_CachedParcelTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.IllegalStateException;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Long;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.nio.charset.Charset;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.HashMap;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Map;\n"
+                + "import java.util.zip.DataFormatException;\n"
+                + "import java.util.zip.Deflater;\n"
+                + "import java.util.zip.Inflater;\n"
+                + "\n"
+                + "final class AutoValue_CachedParcelTest extends $AutoValue_CachedParcelTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_CachedParcelTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_CachedParcelTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_CachedParcelTest createFromParcel(Parcel in) {\n"
+                + "      return unmarshall(in.createByteArray());\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_CachedParcelTest[] newArray(int size) {\n"
+                + "      return new AutoValue_CachedParcelTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  private volatile byte[] marshalled;\n"
+                + "\n"
+                + "  AutoValue_CachedParcelTest(String aString, List<Integer> properties, List<Long> compressed, Map<String, Integer> size) {\n"
+                + "    super(aString, properties, compressed, size);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    byte[] bytes = marshalled;\n"
+                + "    if (bytes == null) {\n"
+                + "      Parcel parcel = Parcel.obtain();\n"
+                + "      try {\n"
+                + "        writeProperties(parcel, flags);\n"
+                + "        bytes = parcel.marshall();\n"
+                + "      } finally {\n"
+                + "        parcel.recycle();\n"
+                + "      }\n"
+                + "      marshalled = bytes;\n"
+                + "    }\n"
+                + "    dest.writeByteArray(bytes);\n"
+                + "  }\n"
+                + "\n"
+                + "  private void writeProperties(Parcel dest, int flags) {\n"
+                + "    writeCompressed(dest, aString().getBytes(Charset.forName(\"UTF-8\")), 1024);\n"
+                + "    dest.writeInt(properties().size());\n"
+                + "    for (Integer element : properties()) {\n"
+                + "      dest.writeInt(element);\n"
+                + "    }\n"
+                + "    dest.writeInt(compressed().size());\n"
+                + "    for (Long element : compressed()) {\n"
+                + "      dest.writeLong(element);\n"
+                + "    }\n"
+                + "    dest.writeInt(size().size());\n"
+                + "    for (Map.Entry<String, Integer> entry : size().entrySet()) {\n"
+                + "      dest.writeString(entry.getKey());\n"
+                + "      dest.writeInt(entry.getValue());\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_CachedParcelTest readProperties(Parcel in) {\n"
+                + "    String aString = new String(readCompressed(in), Charset.forName(\"UTF-8\"));\n"
+                + "    List<Integer> properties = readPropertiesCollection(in);\n"
+                + "    List<Long> compressed = readCompressedCollection(in);\n"
+                + "    Map<String, Integer> size = readSizeCollection(in);\n"
+                + "    return new AutoValue_CachedParcelTest(aString, properties, compressed, size);\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_CachedParcelTest unmarshall(byte[] bytes) {\n"
+                + "    Parcel parcel = Parcel.obtain();\n"
+                + "    try {\n"
+                + "      parcel.unmarshall(bytes, 0, bytes.length);\n"
+                + "      parcel.setDataPosition(0);\n"
+                + "      AutoValue_CachedParcelTest value = readProperties(parcel);\n"
+                + "      value.marshalled = bytes;\n"
+                + "      return value;\n"
+                + "    } finally {\n"
+                + "      parcel.recycle();\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  private static List<Integer> readPropertiesCollection(Parcel in) {\n"
+                + "    int size = in.readInt();\n"
+                + "    List<Integer> collection = new ArrayList<>(size);\n"
+                + "    for (int i = 0; i < size; ++i) {\n"
+                + "      collection.add(in.readInt());\n"
+                + "    }\n"
+                + "    return collection;\n"
+                + "  }\n"
+                + "\n"
+                + "  private static List<Long> readCompressedCollection(Parcel in) {\n"
+                + "    int size = in.readInt();\n"
+                + "    List<Long> collection = new ArrayList<>(size);\n"
+                + "    for (int i = 0; i < size; ++i) {\n"
+                + "      collection.add(in.readLong());\n"
+                + "    }\n"
+                + "    return collection;\n"
+                + "  }\n"
+                + "\n"
+                + "  private static Map<String, Integer> readSizeCollection(Parcel in) {\n"
+                + "    int size = in.readInt();\n"
+                + "    Map<String, Integer> collection = new HashMap<>(size);\n"
+                + "    for (int i = 0; i < size; ++i) {\n"
+                + "      collection.put(in.readString(), in.readInt());\n"
+                + "    }\n"
+                + "    return collection;\n"
+                + "  }\n"
+                + "\n"
+                + "  private static void writeCompressed(Parcel dest, byte[] bytes, int threshold) {\n"
+                + "    if (bytes.length >= threshold) {\n"
+                + "      Deflater deflater = new Deflater();\n"
+                + "      try {\n"
+                + "        deflater.setInput(bytes);\n"
+                + "        deflater.finish();\n"
+                + "        byte[] deflated = new byte[bytes.length];\n"
+                + "        int length = deflater.deflate(deflated);\n"
+                + "        if (deflater.finished()) {\n"
+                + "          dest.writeByte((byte) 1);\n"
+                + "          dest.writeInt(bytes.length);\n"
+                + "          dest.writeByteArray(deflated, 0, length);\n"
+                + "          return;\n"
+                + "}\n"
+                + "      } finally {\n"
+                + "        deflater.end();\n"
+                + "      }\n"
+                + "    }\n"
+                + "    dest.writeByte((byte) 0);\n"
+                + "    dest.writeByteArray(bytes);\n"
+                + "  }\n"
+                + "\n"
+                + "  private static byte[] readCompressed(Parcel in) {\n"
+                + "    if (in.readByte() == 0) {\n"
+                + "      return in.createByteArray();\n"
+                + "    }\n"
+                + "    byte[] bytes = new byte[in.readInt()];\n"
+                + "    Inflater inflater = new Inflater();\n"
+                + "    try {\n"
+                + "      inflater.setInput(in.createByteArray());\n"
+                + "      if (inflater.inflate(bytes) != bytes.length) {\n"
+                + "        throw new IllegalStateException(\"Corrupted compressed data\");\n"
+                + "      }\n"
+                + "      return bytes;\n"
+                + "    } catch (DataFormatException e) {\n"
+                + "      throw new IllegalStateException(e);\n"
+                + "    } finally {\n"
+                + "      inflater.end();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void lazyParcel() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.LazyParcelTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.LazyParcel;\n"
+                + "@AutoValue\n"
+                + "@LazyParcel\n"
+                + "public abstract class LazyParcelTest implements Parcelable {\n"
+                + "    abstract int anInt();\n"
+                + "    abstract String aString();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_LazyParcelTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "\n"
+                + "final class AutoValue_LazyParcelTest extends $AutoValue_LazyParcelTest {\n"
+                + "  public static final android.os.Parcelable.Creator<LazyParcelTest> CREATOR = new android.os.Parcelable.Creator<LazyParcelTest>() {\n"
+                + "    @Override\n"
+                + "    public LazyParcelTest createFromParcel(Parcel in) {\n"
+                + "      return new Lazy(in.createByteArray());\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public LazyParcelTest[] newArray(int size) {\n"
+                + "      return new LazyParcelTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  private volatile byte[] marshalled;\n"
+                + "\n"
+                + "  AutoValue_LazyParcelTest(int anInt, String aString) {\n"
+                + "    super(anInt, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    byte[] bytes = marshalled;\n"
+                + "    if (bytes == null) {\n"
+                + "      Parcel parcel = Parcel.obtain();\n"
+                + "      try {\n"
+                + "        writeProperties(parcel, flags);\n"
+                + "        bytes = parcel.marshall();\n"
+                + "      } finally {\n"
+                + "        parcel.recycle();\n"
+                + "      }\n"
+                + "      marshalled = bytes;\n"
+                + "    }\n"
+                + "    dest.writeByteArray(bytes);\n"
+                + "  }\n"
+                + "\n"
+                + "  private void writeProperties(Parcel dest, int flags) {\n"
+                + "    dest.writeInt(anInt());\n"
+                + "    dest.writeString(aString());\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_LazyParcelTest readProperties(Parcel in) {\n"
+                + "    int anInt = in.readInt();\n"
+                + "    String aString = in.readString();\n"
+                + "    return new AutoValue_LazyParcelTest(anInt, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_LazyParcelTest unmarshall(byte[] bytes) {\n"
+                + "    Parcel parcel = Parcel.obtain();\n"
+                + "    try {\n"
+                + "      parcel.unmarshall(bytes, 0, bytes.length);\n"
+                + "      parcel.setDataPosition(0);\n"
+                + "      AutoValue_LazyParcelTest value = readProperties(parcel);\n"
+                + "      value.marshalled = bytes;\n"
+                + "      return value;\n"
+                + "    } finally {\n"
+                + "      parcel.recycle();\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class Lazy extends LazyParcelTest {\n"
+                + "    private final byte[] $bytes;\n"
+                + "    private volatile AutoValue_LazyParcelTest $decoded;\n"
+                + "    Lazy(byte[] bytes) {\n"
+                + "      this.$bytes = bytes;\n"
+                + "    }\n"
+                + "    private AutoValue_LazyParcelTest $decoded() {\n"
+                + "      AutoValue_LazyParcelTest value = $decoded;\n"
+                + "      if (value == null) {\n"
+                + "        value = AutoValue_LazyParcelTest.unmarshall($bytes);\n"
+                + "        $decoded = value;\n"
+                + "      }\n"
+                + "      return value;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    int anInt() {\n"
+                + "      return $decoded().anInt();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    String aString() {\n"
+                + "      return $decoded().aString();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int describeContents() {\n"
+                + "      return 0;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public void writeToParcel(Parcel dest, int flags) {\n"
+                + "      dest.writeByteArray($bytes);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean equals(Object o) {\n"
+                + "      return $decoded().equals(o);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int hashCode() {\n"
+                + "      return $decoded().hashCode();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String toString() {\n"
+                + "      return $decoded().toString();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void lazyParcelNameCollision() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.LazyCollisionTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.LazyParcel;\n"
+                + "@AutoValue\n"
+                + "@LazyParcel\n"
+                + "public abstract class LazyCollisionTest implements Parcelable {\n"
+                + "    abstract int decoded();\n"
+                + "    abstract byte[] bytes();\n"
+                + "    abstract String unmarshall();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_LazyCollisionTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "\n"
+                + "final class AutoValue_LazyCollisionTest extends $AutoValue_LazyCollisionTest {\n"
+                + "  public static final android.os.Parcelable.Creator<LazyCollisionTest> CREATOR = new android.os.Parcelable.Creator<LazyCollisionTest>() {\n"
+                + "    @Override\n"
+                + "    public LazyCollisionTest createFromParcel(Parcel in) {\n"
+                + "      return new Lazy(in.createByteArray());\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public LazyCollisionTest[] newArray(int size) {\n"
+                + "      return new LazyCollisionTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  private volatile byte[] marshalled;\n"
+                + "\n"
+                + "  AutoValue_LazyCollisionTest(int decoded, byte[] bytes, String unmarshall) {\n"
+                + "    super(decoded, bytes, unmarshall);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    byte[] bytes = marshalled;\n"
+                + "    if (bytes == null) {\n"
+                + "      Parcel parcel = Parcel.obtain();\n"
+                + "      try {\n"
+                + "        writeProperties(parcel, flags);\n"
+                + "        bytes = parcel.marshall();\n"
+                + "      } finally {\n"
+                + "        parcel.recycle();\n"
+                + "      }\n"
+                + "      marshalled = bytes;\n"
+                + "    }\n"
+                + "    dest.writeByteArray(bytes);\n"
+                + "  }\n"
+                + "\n"
+                + "  private void writeProperties(Parcel dest, int flags) {\n"
+                + "    dest.writeInt(decoded());\n"
+                + "    dest.writeByteArray(bytes());\n"
+                + "    dest.writeString(unmarshall());\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_LazyCollisionTest readProperties(Parcel in) {\n"
+                + "    int decoded = in.readInt();\n"
+                + "    byte[] bytes = in.createByteArray();\n"
+                + "    String unmarshall = in.readString();\n"
+                + "    return new AutoValue_LazyCollisionTest(decoded, bytes, unmarshall);\n"
+                + "  }\n"
+                + "\n"
+                + "  private static AutoValue_LazyCollisionTest unmarshall(byte[] bytes) {\n"
+                + "    Parcel parcel = Parcel.obtain();\n"
+                + "    try {\n"
+                + "      parcel.unmarshall(bytes, 0, bytes.length);\n"
+                + "      parcel.setDataPosition(0);\n"
+                + "      AutoValue_LazyCollisionTest value = readProperties(parcel);\n"
+                + "      value.marshalled = bytes;\n"
+                + "      return value;\n"
+                + "    } finally {\n"
+                + "      parcel.recycle();\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class Lazy extends LazyCollisionTest {\n"
+                + "    private final byte[] $bytes;\n"
+                + "    private volatile AutoValue_LazyCollisionTest $decoded;\n"
+                + "    Lazy(byte[] bytes) {\n"
+                + "      this.$bytes = bytes;\n"
+                + "    }\n"
+                + "    private AutoValue_LazyCollisionTest $decoded() {\n"
+                + "      AutoValue_LazyCollisionTest value = $decoded;\n"
+                + "      if (value == null) {\n"
+                + "        value = AutoValue_LazyCollisionTest.unmarshall($bytes);\n"
+                + "        $decoded = value;\n"
+                + "      }\n"
+                + "      return value;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    int decoded() {\n"
+                + "      return $decoded().decoded();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    byte[] bytes() {\n"
+                + "      return $decoded().bytes();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    String unmarshall() {\n"
+                + "      return $decoded().unmarshall();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int describeContents() {\n"
+                + "      return 0;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public void writeToParcel(Parcel dest, int flags) {\n"
+                + "      dest.writeByteArray($bytes);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean equals(Object o) {\n"
+                + "      return $decoded().equals(o);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int hashCode() {\n"
+                + "      return $decoded().hashCode();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String toString() {\n"
+                + "      return $decoded().toString();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void parcelListSlice() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.ParcelListSliceTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.ParcelListSlice;\n"
+                + "@AutoValue\n"
+                + "@ParcelListSlice\n"
+                + "public abstract class ParcelListSliceTest implements Parcelable {\n"
+                + "    abstract int anInt();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_ParcelListSliceTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Binder;\n"
+                + "import android.os.IBinder;\n"
+                + "import android.os.Parcel;\n"
+                + "import android.os.Parcelable;\n"
+                + "import android.os.RemoteException;\n"
+                + "import java.lang.IllegalStateException;\n"
+                + "import java.lang.Override;\n"
+                + "import java.util.ArrayList;\n"
+                + "import java.util.List;\n"
+                + "\n"
+                + "final class AutoValue_ParcelListSliceTest extends $AutoValue_ParcelListSliceTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_ParcelListSliceTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_ParcelListSliceTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_ParcelListSliceTest createFromParcel(Parcel in) {\n"
+                + "      int anInt = in.readInt();\n"
+                + "      return new AutoValue_ParcelListSliceTest(anInt);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_ParcelListSliceTest[] newArray(int size) {\n"
+                + "      return new AutoValue_ParcelListSliceTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  AutoValue_ParcelListSliceTest(int anInt) {\n"
+                + "    super(anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    dest.writeInt(anInt());\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class ListSlice implements Parcelable {\n"
+                + "    private static final int MAX_IPC_SIZE = 64 * 1024;\n"
+                + "    public static final android.os.Parcelable.Creator<ListSlice> CREATOR = new android.os.Parcelable.Creator<ListSlice>() {\n"
+                + "      @Override\n"
+                + "      public ListSlice createFromParcel(Parcel in) {\n"
+                + "        int size = in.readInt();\n"
+                + "        List<ParcelListSliceTest> list = new ArrayList<>(size);\n"
+                + "        readChunk(in, size, list);\n"
+                + "        if (list.size() < size) {\n"
+                + "          IBinder binder = in.readStrongBinder();\n"
+                + "          while (list.size() < size) {\n"
+                + "            Parcel data = Parcel.obtain();\n"
+                + "            Parcel reply = Parcel.obtain();\n"
+                + "            try {\n"
+                + "              data.writeInt(list.size());\n"
+                + "              binder.transact(IBinder.FIRST_CALL_TRANSACTION, data, reply, 0);\n"
+                + "              readChunk(reply, size, list);\n"
+                + "            } catch (RemoteException e) {\n"
+                + "              throw new IllegalStateException(e);\n"
+                + "            } finally {\n"
+                + "              reply.recycle();\n"
+                + "              data.recycle();\n"
+                + "            }\n"
+                + "          }\n"
+                + "        }\n"
+                + "        return new ListSlice(list);\n"
+                + "      }\n"
+                + "      @Override\n"
+                + "      public ListSlice[] newArray(int size) {\n"
+                + "        return new ListSlice[size];\n"
+                + "      }\n"
+                + "    };\n"
+                + "    private final List<ParcelListSliceTest> list;\n"
+                + "    ListSlice(List<ParcelListSliceTest> list) {\n"
+                + "      this.list = list;\n"
+                + "    }\n"
+                + "    List<ParcelListSliceTest> getList() {\n"
+                + "      return list;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int describeContents() {\n"
+                + "      return 0;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public void writeToParcel(Parcel dest, int flags) {\n"
+                + "      dest.writeInt(list.size());\n"
+                + "      final int callFlags = flags;\n"
+                + "      if (writeChunk(list, 0, dest, callFlags) < list.size()) {\n"
+                + "        dest.writeStrongBinder(new Binder() {\n"
+                + "          @Override\n"
+                + "          protected boolean onTransact(int code, Parcel data, Parcel reply, int flags) throws\n"
+                + "              RemoteException {\n"
+                + "            if (code != FIRST_CALL_TRANSACTION) {\n"
+                + "              return super.onTransact(code, data, reply, flags);\n"
+                + "            }\n"
+                + "            writeChunk(list, data.readInt(), reply, callFlags);\n"
+                + "            return true;\n"
+                + "          }\n"
+                + "        });\n"
+                + "      }\n"
+                + "    }\n"
+                + "    private static int writeChunk(List<ParcelListSliceTest> list, int start, Parcel dest, int flags) {\n"
+                + "      int size = list.size();\n"
+                + "      int i = start;\n"
+                + "      while (i < size && dest.dataSize() < MAX_IPC_SIZE) {\n"
+                + "        dest.writeInt(1);\n"
+                + "        list.get(i++).writeToParcel(dest, flags);\n"
+                + "      }\n"
+                + "      if (i < size) {\n"
+                + "        dest.writeInt(0);\n"
+                + "      }\n"
+                + "      return i;\n"
+                + "    }\n"
+                + "    private static void readChunk(Parcel in, int size, List<ParcelListSliceTest> list) {\n"
+                + "      while (list.size() < size && in.readInt() != 0) {\n"
+                + "        list.add(AutoValue_ParcelListSliceTest.CREATOR.createFromParcel(in));\n"
+                + "      }\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void compressed() {
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CompressedTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.Compressed;\n"
+                + "@AutoValue\n"
+                + "public abstract class CompressedTest implements Parcelable {\n"
+                + "    @Compressed\n"
+                + "    abstract String aString();\n"
+                + "    @Nullable\n"
+                + "    @Compressed(threshold = 4096)\n"
+                + "    @SuppressWarnings(\"mutable\")\n"
+                + "    abstract byte[] bytes();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_CompressedTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.os.Parcel;\n"
+                + "import java.lang.IllegalStateException;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.nio.charset.Charset;\n"
+                + "import java.util.zip.DataFormatException;\n"
+                + "import java.util.zip.Deflater;\n"
+                + "import java.util.zip.Inflater;\n"
+                + "\n"
+                + "final class AutoValue_CompressedTest extends $AutoValue_CompressedTest {\n"
+                + "  public static final android.os.Parcelable.Creator<AutoValue_CompressedTest> CREATOR = new android.os.Parcelable.Creator<AutoValue_CompressedTest>() {\n"
+                + "    @Override\n"
+                + "    public AutoValue_CompressedTest createFromParcel(Parcel in) {\n"
+                + "      int nullBits0 = in.readInt();\n"
+                + "      String aString = new String(readCompressed(in), Charset.forName(\"UTF-8\"));\n"
+                + "      byte[] bytes = (nullBits0 & 1 << 0) != 0 ? null : readCompressed(in);\n"
+                + "      return new AutoValue_CompressedTest(aString, bytes);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public AutoValue_CompressedTest[] newArray(int size) {\n"
+                + "      return new AutoValue_CompressedTest[size];\n"
+                + "    }\n"
+                + "  };\n"
+                + "\n"
+                + "  AutoValue_CompressedTest(String aString, byte[] bytes) {\n"
+                + "    super(aString, bytes);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public int describeContents() {\n"
+                + "    return 0;\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToParcel(Parcel dest, int flags) {\n"
+                + "    int nullBits0 = 0;\n"
+                + "    if (bytes() == null) {\n"
+                + "      nullBits0 |= 1 << 0;\n"
+                + "    }\n"
+                + "    dest.writeInt(nullBits0);\n"
+                + "    writeCompressed(dest, aString().getBytes(Charset.forName(\"UTF-8\")), 1024);\n"
+                + "    if (bytes() != null) {\n"
+                + "      writeCompressed(dest, bytes(), 4096);\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  private static void writeCompressed(Parcel dest, byte[] bytes, int threshold) {\n"
+                + "    if (bytes.length >= threshold) {\n"
+                + "      Deflater deflater = new Deflater();\n"
+                + "      try {\n"
+                + "        deflater.setInput(bytes);\n"
+                + "        deflater.finish();\n"
+                + "        byte[] deflated = new byte[bytes.length];\n"
+                + "        int length = deflater.deflate(deflated);\n"
+                + "        if (deflater.finished()) {\n"
+                + "          dest.writeByte((byte) 1);\n"
+                + "          dest.writeInt(bytes.length);\n"
+                + "          dest.writeByteArray(deflated, 0, length);\n"
+                + "          return;\n"
+                + "        }\n"
+                + "      } finally {\n"
+                + "        deflater.end();\n"
+                + "      }\n"
+                + "    }\n"
+                + "    dest.writeByte((byte) 0);\n"
+                + "    dest.writeByteArray(bytes);\n"
+                + "  }\n"
+                + "\n"
+                + "  private static byte[] readCompressed(Parcel in) {\n"
+                + "    if (in.readByte() == 0) {\n"
+                + "      return in.createByteArray();\n"
+                + "    }\n"
+                + "    byte[] bytes = new byte[in.readInt()];\n"
+                + "    Inflater inflater = new Inflater();\n"
+                + "    try {\n"
+                + "      inflater.setInput(in.createByteArray());\n"
+                + "      if (inflater.inflate(bytes) != bytes.length) {\n"
+                + "        throw new IllegalStateException(\"Corrupted compressed data\");\n"
+                + "      }\n"
+                + "      return bytes;\n"
+                + "    } catch (DataFormatException e) {\n"
+                + "      throw new IllegalStateException(e);\n"
+                + "    } finally {\n"
+                + "      inflater.end();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(nullable, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void compressedUnsupportedType() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CompressedTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.os.Parcelable;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.Compressed;\n"
+                + "@AutoValue\n"
+                + "public abstract class CompressedTest implements Parcelable {\n"
+                + "    @Compressed\n"
+                + "    abstract int anInt();\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .failsToCompile()
+                .withErrorContaining("@Compressed only supports `String` and `byte[]`");
     }
 }
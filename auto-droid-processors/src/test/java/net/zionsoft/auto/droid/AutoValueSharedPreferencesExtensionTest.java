@@ -23,6 +23,7 @@ import com.google.testing.compile.JavaSourcesSubjectFactory;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import javax.tools.JavaFileObject;
@@ -48,6 +49,9 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "package net.zionsoft.auto.droid.test;\n"
                 + "\n"
                 + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Boolean;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Map;\n"
                 + "\n"
                 + "final class AutoValue_SmokeTest extends $AutoValue_SmokeTest {\n"
                 + "  AutoValue_SmokeTest(boolean aBoolean) {\n"
@@ -56,6 +60,12 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "\n"
                 + "  static AutoValue_SmokeTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
                 + "      boolean aBoolean = sharedPreferences.getBoolean(\"a_boolean\", true);\n"
+                + "    return new AutoValue_SmokeTest(aBoolean);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_SmokeTest createFromMap(Map<String, ?> map) {\n"
+                + "    Boolean $value0 = (Boolean) map.get(\"a_boolean\");\n"
+                + "    boolean aBoolean = $value0 != null ? $value0 : true;\n"
                 + "      return new AutoValue_SmokeTest(aBoolean);\n"
                 + "    }\n"
                 + "}\n");
@@ -134,6 +144,8 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "import java.lang.Integer;\n"
                 + "import java.lang.Long;\n"
                 + "import java.lang.String;\n"
+                + "import java.lang.SuppressWarnings;\n"
+                + "import java.util.Map;\n"
                 + "import java.util.Set;\n"
                 + "\n"
                 + "final class AutoValue_AllTypesTest extends $AutoValue_AllTypesTest {\n"
@@ -153,6 +165,32 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "      String aString = sharedPreferences.getString(\"a_string\", \"John 3:16\");\n"
                 + "      String anotherString = sharedPreferences.getString(\"another_string\", \"For God so loved the world, that he gave his only begotten Son, that whosoever believeth in him should not perish, but have everlasting life.\");\n"
                 + "      Set<String> aStringSet = sharedPreferences.getStringSet(\"a_string_set\", null);\n"
+                + "    return new AutoValue_AllTypesTest(aBoolean, anotherBoolean, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aString, anotherString, aStringSet);\n"
+                + "  }\n"
+                + "\n"
+                + "  @SuppressWarnings(\"unchecked\")\n"
+                + "  static AutoValue_AllTypesTest createFromMap(Map<String, ?> map) {\n"
+                + "    Boolean $value0 = (Boolean) map.get(\"a_boolean\");\n"
+                + "    boolean aBoolean = $value0 != null ? $value0 : true;\n"
+                + "    Boolean $value1 = (Boolean) map.get(\"another_boolean\");\n"
+                + "    boolean anotherBoolean = $value1 != null ? $value1 : false;\n"
+                + "    Float $value2 = (Float) map.get(\"a_float\");\n"
+                + "    float aFloat = $value2 != null ? $value2 : 39.27F;\n"
+                + "    Float $value3 = (Float) map.get(\"another_float\");\n"
+                + "    float anotherFloat = $value3 != null ? $value3 : 77.77F;\n"
+                + "    Integer $value4 = (Integer) map.get(\"an_int\");\n"
+                + "    int anInt = $value4 != null ? $value4 : 1189;\n"
+                + "    Integer $value5 = (Integer) map.get(\"another_int\");\n"
+                + "    int anotherInt = $value5 != null ? $value5 : 31102;\n"
+                + "    Long $value6 = (Long) map.get(\"a_long\");\n"
+                + "    long aLong = $value6 != null ? $value6 : 929260L;\n"
+                + "    Long $value7 = (Long) map.get(\"another_long\");\n"
+                + "    long anotherLong = $value7 != null ? $value7 : 231457957L;\n"
+                + "    String $value8 = (String) map.get(\"a_string\");\n"
+                + "    String aString = $value8 != null ? $value8 : \"John 3:16\";\n"
+                + "    String $value9 = (String) map.get(\"another_string\");\n"
+                + "    String anotherString = $value9 != null ? $value9 : \"For God so loved the world, that he gave his only begotten Son, that whosoever believeth in him should not perish, but have everlasting life.\";\n"
+                + "    Set<String> aStringSet = (Set<String>) map.get(\"a_string_set\");\n"
                 + "      return new AutoValue_AllTypesTest(aBoolean, anotherBoolean, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aString, anotherString, aStringSet);\n"
                 + "    }\n"
                 + "}\n");
@@ -209,6 +247,8 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "import java.lang.Integer;\n"
                 + "import java.lang.Long;\n"
                 + "import java.lang.String;\n"
+                + "import java.lang.SuppressWarnings;\n"
+                + "import java.util.Map;\n"
                 + "import java.util.Set;\n"
                 + "\n"
                 + "final class AutoValue_DefaultValuesTest extends $AutoValue_DefaultValuesTest {\n"
@@ -227,6 +267,30 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "      long anotherLong = sharedPreferences.getLong(\"another_long\", 0L);\n"
                 + "      String aString = sharedPreferences.getString(\"a_string\", \"\");\n"
                 + "      Set<String> aStringSet = sharedPreferences.getStringSet(\"a_string_set\", null);\n"
+                + "    return new AutoValue_DefaultValuesTest(aBoolean, anotherBoolean, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aString, aStringSet);\n"
+                + "  }\n"
+                + "\n"
+                + "  @SuppressWarnings(\"unchecked\")\n"
+                + "  static AutoValue_DefaultValuesTest createFromMap(Map<String, ?> map) {\n"
+                + "    Boolean $value0 = (Boolean) map.get(\"a_boolean\");\n"
+                + "    boolean aBoolean = $value0 != null ? $value0 : false;\n"
+                + "    Boolean $value1 = (Boolean) map.get(\"another_boolean\");\n"
+                + "    boolean anotherBoolean = $value1 != null ? $value1 : false;\n"
+                + "    Float $value2 = (Float) map.get(\"a_float\");\n"
+                + "    float aFloat = $value2 != null ? $value2 : 0.0F;\n"
+                + "    Float $value3 = (Float) map.get(\"another_float\");\n"
+                + "    float anotherFloat = $value3 != null ? $value3 : 0.0F;\n"
+                + "    Integer $value4 = (Integer) map.get(\"an_int\");\n"
+                + "    int anInt = $value4 != null ? $value4 : 0;\n"
+                + "    Integer $value5 = (Integer) map.get(\"another_int\");\n"
+                + "    int anotherInt = $value5 != null ? $value5 : 0;\n"
+                + "    Long $value6 = (Long) map.get(\"a_long\");\n"
+                + "    long aLong = $value6 != null ? $value6 : 0L;\n"
+                + "    Long $value7 = (Long) map.get(\"another_long\");\n"
+                + "    long anotherLong = $value7 != null ? $value7 : 0L;\n"
+                + "    String $value8 = (String) map.get(\"a_string\");\n"
+                + "    String aString = $value8 != null ? $value8 : \"\";\n"
+                + "    Set<String> aStringSet = (Set<String>) map.get(\"a_string_set\");\n"
                 + "      return new AutoValue_DefaultValuesTest(aBoolean, anotherBoolean, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aString, aStringSet);\n"
                 + "    }\n"
                 + "}\n");
@@ -293,6 +357,8 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "import java.lang.Integer;\n"
                 + "import java.lang.Long;\n"
                 + "import java.lang.String;\n"
+                + "import java.lang.SuppressWarnings;\n"
+                + "import java.util.Map;\n"
                 + "import java.util.Set;\n"
                 + "\n"
                 + "final class AutoValue_NotAnnotatedTest extends $AutoValue_NotAnnotatedTest {\n"
@@ -311,6 +377,40 @@ public class AutoValueSharedPreferencesExtensionTest {
                 + "      long anotherLong = sharedPreferences.getLong(\"another_long\", 0L);\n"
                 + "      String aString = sharedPreferences.getString(\"a_string\", \"\");\n"
                 + "      Set<String> aStringSet = sharedPreferences.getStringSet(\"a_string_set\", null);\n"
+                + "    boolean aNotAnnotatedBoolean = false;\n"
+                + "    boolean anotherNotAnnotatedBoolean = false;\n"
+                + "    float aNotAnnotatedFloat = 0.0F;\n"
+                + "    float anotherNotAnnotatedFloat = 0.0F;\n"
+                + "    int aNotAnnotatedInt = 0;\n"
+                + "    int anotherNotAnnotatedInt = 0;\n"
+                + "    long aNotAnnotatedLong = 0L;\n"
+                + "    long anotherNotAnnotatedLong = 0L;\n"
+                + "    String aNotAnnotatedString = null;\n"
+                + "    Set<String> aNotAnnotatedStringSet = null;\n"
+                + "    return new AutoValue_NotAnnotatedTest(aBoolean, anotherBoolean, aFloat, anotherFloat, anInt, anotherInt, aLong, anotherLong, aString, aStringSet, aNotAnnotatedBoolean, anotherNotAnnotatedBoolean, aNotAnnotatedFloat, anotherNotAnnotatedFloat, aNotAnnotatedInt, anotherNotAnnotatedInt, aNotAnnotatedLong, anotherNotAnnotatedLong, aNotAnnotatedString, aNotAnnotatedStringSet);\n"
+                + "  }\n"
+                + "\n"
+                + "  @SuppressWarnings(\"unchecked\")\n"
+                + "  static AutoValue_NotAnnotatedTest createFromMap(Map<String, ?> map) {\n"
+                + "    Boolean $value0 = (Boolean) map.get(\"a_boolean\");\n"
+                + "    boolean aBoolean = $value0 != null ? $value0 : false;\n"
+                + "    Boolean $value1 = (Boolean) map.get(\"another_boolean\");\n"
+                + "    boolean anotherBoolean = $value1 != null ? $value1 : false;\n"
+                + "    Float $value2 = (Float) map.get(\"a_float\");\n"
+                + "    float aFloat = $value2 != null ? $value2 : 0.0F;\n"
+                + "    Float $value3 = (Float) map.get(\"another_float\");\n"
+                + "    float anotherFloat = $value3 != null ? $value3 : 0.0F;\n"
+                + "    Integer $value4 = (Integer) map.get(\"an_int\");\n"
+                + "    int anInt = $value4 != null ? $value4 : 0;\n"
+                + "    Integer $value5 = (Integer) map.get(\"another_int\");\n"
+                + "    int anotherInt = $value5 != null ? $value5 : 0;\n"
+                + "    Long $value6 = (Long) map.get(\"a_long\");\n"
+                + "    long aLong = $value6 != null ? $value6 : 0L;\n"
+                + "    Long $value7 = (Long) map.get(\"another_long\");\n"
+                + "    long anotherLong = $value7 != null ? $value7 : 0L;\n"
+                + "    String $value8 = (String) map.get(\"a_string\");\n"
+                + "    String aString = $value8 != null ? $value8 : \"\";\n"
+                + "    Set<String> aStringSet = (Set<String>) map.get(\"a_string_set\");\n"
                 + "      boolean aNotAnnotatedBoolean = false;\n"
                 + "      boolean anotherNotAnnotatedBoolean = false;\n"
                 + "      float aNotAnnotatedFloat = 0.0F;\n"
@@ -332,4 +432,764 @@ public class AutoValueSharedPreferencesExtensionTest {
                 .and()
                 .generatesSources(expected);
     }
+
+    @Test
+    public void createFromMapNameCollision() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CollisionTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "public abstract class CollisionTest {\n"
+                + "    @SharedPreference(key = \"foo\")\n"
+                + "    abstract int foo();\n"
+                + "    @SharedPreference(key = \"foo_value\")\n"
+                + "    abstract int fooValue();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_CollisionTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_CollisionTest extends $AutoValue_CollisionTest {\n"
+                + "  AutoValue_CollisionTest(int foo, int fooValue) {\n"
+                + "    super(foo, fooValue);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_CollisionTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    int foo = sharedPreferences.getInt(\"foo\", 0);\n"
+                + "    int fooValue = sharedPreferences.getInt(\"foo_value\", 0);\n"
+                + "    return new AutoValue_CollisionTest(foo, fooValue);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_CollisionTest createFromMap(Map<String, ?> map) {\n"
+                + "    Integer $value0 = (Integer) map.get(\"foo\");\n"
+                + "    int foo = $value0 != null ? $value0 : 0;\n"
+                + "    Integer $value1 = (Integer) map.get(\"foo_value\");\n"
+                + "    int fooValue = $value1 != null ? $value1 : 0;\n"
+                + "    return new AutoValue_CollisionTest(foo, fooValue);\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void writeToSharedPreferences() {
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.WriteTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "import java.util.Set;\n"
+                + "@AutoValue\n"
+                + "public abstract class WriteTest {\n"
+                + "    @SharedPreference(key = \"a_boolean\")\n"
+                + "    abstract boolean aBoolean();\n"
+                + "    @Nullable\n"
+                + "    @SharedPreference(key = \"an_int\")\n"
+                + "    abstract Integer anInt();\n"
+                + "    @SharedPreference(key = \"a_long\")\n"
+                + "    abstract Long aLong();\n"
+                + "    @SharedPreference(key = \"a_string\")\n"
+                + "    abstract String aString();\n"
+                + "    @SharedPreference(key = \"a_string_set\")\n"
+                + "    abstract Set<String> aStringSet();\n"
+                + "    abstract float notAnnotated();\n"
+                + "    public abstract void writeToSharedPreferences(SharedPreferences sharedPreferences);\n"
+                + "    abstract void writeToSharedPreferences(SharedPreferences.Editor editor);\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_WriteTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Boolean;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Long;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.lang.SuppressWarnings;\n"
+                + "import java.util.Map;\n"
+                + "import java.util.Set;\n"
+                + "\n"
+                + "final class AutoValue_WriteTest extends $AutoValue_WriteTest {\n"
+                + "  AutoValue_WriteTest(boolean aBoolean, Integer anInt, Long aLong, String aString, Set<String> aStringSet, float notAnnotated) {\n"
+                + "    super(aBoolean, anInt, aLong, aString, aStringSet, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_WriteTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    boolean aBoolean = sharedPreferences.getBoolean(\"a_boolean\", false);\n"
+                + "    int anInt = sharedPreferences.getInt(\"an_int\", 0);\n"
+                + "    long aLong = sharedPreferences.getLong(\"a_long\", 0L);\n"
+                + "    String aString = sharedPreferences.getString(\"a_string\", \"\");\n"
+                + "    Set<String> aStringSet = sharedPreferences.getStringSet(\"a_string_set\", null);\n"
+                + "    float notAnnotated = 0.0F;\n"
+                + "    return new AutoValue_WriteTest(aBoolean, anInt, aLong, aString, aStringSet, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  @SuppressWarnings(\"unchecked\")\n"
+                + "  static AutoValue_WriteTest createFromMap(Map<String, ?> map) {\n"
+                + "    Boolean $value0 = (Boolean) map.get(\"a_boolean\");\n"
+                + "    boolean aBoolean = $value0 != null ? $value0 : false;\n"
+                + "    Integer $value1 = (Integer) map.get(\"an_int\");\n"
+                + "    int anInt = $value1 != null ? $value1 : 0;\n"
+                + "    Long $value2 = (Long) map.get(\"a_long\");\n"
+                + "    long aLong = $value2 != null ? $value2 : 0L;\n"
+                + "    String $value3 = (String) map.get(\"a_string\");\n"
+                + "    String aString = $value3 != null ? $value3 : \"\";\n"
+                + "    Set<String> aStringSet = (Set<String>) map.get(\"a_string_set\");\n"
+                + "    float notAnnotated = 0.0F;\n"
+                + "    return new AutoValue_WriteTest(aBoolean, anInt, aLong, aString, aStringSet, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  public void writeToSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    SharedPreferences.Editor editor = sharedPreferences.edit();\n"
+                + "    writeToSharedPreferences(editor);\n"
+                + "    editor.apply();\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  void writeToSharedPreferences(SharedPreferences.Editor editor) {\n"
+                + "    editor.putBoolean(\"a_boolean\", aBoolean());\n"
+                + "    if (anInt() == null) {\n"
+                + "      editor.remove(\"an_int\");\n"
+                + "    } else {\n"
+                + "      editor.putInt(\"an_int\", anInt());\n"
+                + "    }\n"
+                + "    editor.putLong(\"a_long\", aLong());\n"
+                + "    editor.putString(\"a_string\", aString());\n"
+                + "    editor.putStringSet(\"a_string_set\", aStringSet());\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(nullable, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void writeToSharedPreferencesWithoutEditor() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.WriteTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "public abstract class WriteTest {\n"
+                + "    @SharedPreference(key = \"a_float\")\n"
+                + "    abstract float aFloat();\n"
+                + "    @SharedPreference(key = \"a_string\")\n"
+                + "    abstract String aString();\n"
+                + "    abstract void save(SharedPreferences sharedPreferences);\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_WriteTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Float;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_WriteTest extends $AutoValue_WriteTest {\n"
+                + "  AutoValue_WriteTest(float aFloat, String aString) {\n"
+                + "    super(aFloat, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_WriteTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    float aFloat = sharedPreferences.getFloat(\"a_float\", 0.0F);\n"
+                + "    String aString = sharedPreferences.getString(\"a_string\", \"\");\n"
+                + "    return new AutoValue_WriteTest(aFloat, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_WriteTest createFromMap(Map<String, ?> map) {\n"
+                + "    Float $value0 = (Float) map.get(\"a_float\");\n"
+                + "    float aFloat = $value0 != null ? $value0 : 0.0F;\n"
+                + "    String $value1 = (String) map.get(\"a_string\");\n"
+                + "    String aString = $value1 != null ? $value1 : \"\";\n"
+                + "    return new AutoValue_WriteTest(aFloat, aString);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  void save(SharedPreferences sharedPreferences) {\n"
+                + "    SharedPreferences.Editor editor = sharedPreferences.edit();\n"
+                + "    editor.putFloat(\"a_float\", aFloat());\n"
+                + "    editor.putString(\"a_string\", aString());\n"
+                + "    editor.apply();\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void writeToSharedPreferencesIgnoresConcreteMethods() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.WriteTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "public abstract class WriteTest {\n"
+                + "    @SharedPreference(key = \"k\")\n"
+                + "    abstract int k();\n"
+                + "    static void reset(SharedPreferences sharedPreferences) {\n"
+                + "    }\n"
+                + "    void log(SharedPreferences.Editor editor) {\n"
+                + "    }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void writeChanges() {
+        final JavaFileObject nullable = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.Nullable", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "public @interface Nullable {\n"
+                + "}\n");
+
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.WriteChangesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "public abstract class WriteChangesTest {\n"
+                + "    @SharedPreference(key = \"a_float\")\n"
+                + "    abstract float aFloat();\n"
+                + "    @Nullable\n"
+                + "    @SharedPreference(key = \"a_long\")\n"
+                + "    abstract Long aLong();\n"
+                + "    @Nullable\n"
+                + "    @SharedPreference(key = \"a_string\")\n"
+                + "    abstract String aString();\n"
+                + "    abstract int notAnnotated();\n"
+                + "    abstract void writeChanges(SharedPreferences sharedPreferences, WriteChangesTest previous);\n"
+                + "    abstract boolean writeChanges(SharedPreferences.Editor editor, WriteChangesTest previous);\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_WriteChangesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Float;\n"
+                + "import java.lang.Long;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_WriteChangesTest extends $AutoValue_WriteChangesTest {\n"
+                + "  AutoValue_WriteChangesTest(float aFloat, Long aLong, String aString, int notAnnotated) {\n"
+                + "    super(aFloat, aLong, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_WriteChangesTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    float aFloat = sharedPreferences.getFloat(\"a_float\", 0.0F);\n"
+                + "    long aLong = sharedPreferences.getLong(\"a_long\", 0L);\n"
+                + "    String aString = sharedPreferences.getString(\"a_string\", \"\");\n"
+                + "    int notAnnotated = 0;\n"
+                + "    return new AutoValue_WriteChangesTest(aFloat, aLong, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_WriteChangesTest createFromMap(Map<String, ?> map) {\n"
+                + "    Float $value0 = (Float) map.get(\"a_float\");\n"
+                + "    float aFloat = $value0 != null ? $value0 : 0.0F;\n"
+                + "    Long $value1 = (Long) map.get(\"a_long\");\n"
+                + "    long aLong = $value1 != null ? $value1 : 0L;\n"
+                + "    String $value2 = (String) map.get(\"a_string\");\n"
+                + "    String aString = $value2 != null ? $value2 : \"\";\n"
+                + "    int notAnnotated = 0;\n"
+                + "    return new AutoValue_WriteChangesTest(aFloat, aLong, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  void writeChanges(SharedPreferences sharedPreferences, WriteChangesTest previous) {\n"
+                + "    SharedPreferences.Editor editor = sharedPreferences.edit();\n"
+                + "    boolean changed = writeChanges(editor, previous);\n"
+                + "    if (changed) {\n"
+                + "      editor.apply();\n"
+                + "    }\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  boolean writeChanges(SharedPreferences.Editor editor, WriteChangesTest previous) {\n"
+                + "    boolean changed = false;\n"
+                + "    if (previous == null || Float.compare(aFloat(), previous.aFloat()) != 0) {\n"
+                + "      editor.putFloat(\"a_float\", aFloat());\n"
+                + "      changed = true;\n"
+                + "    }\n"
+                + "    if (previous == null || aLong() != previous.aLong() && (aLong() == null || !aLong().equals(previous.aLong()))) {\n"
+                + "      if (aLong() == null) {\n"
+                + "        editor.remove(\"a_long\");\n"
+                + "      } else {\n"
+                + "        editor.putLong(\"a_long\", aLong());\n"
+                + "      }\n"
+                + "      changed = true;\n"
+                + "    }\n"
+                + "    if (previous == null || aString() != previous.aString() && (aString() == null || !aString().equals(previous.aString()))) {\n"
+                + "      editor.putString(\"a_string\", aString());\n"
+                + "      changed = true;\n"
+                + "    }\n"
+                + "    return changed;\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Arrays.asList(nullable, source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void writeChangesWithoutEditor() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.WriteChangesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "public abstract class WriteChangesTest {\n"
+                + "    @SharedPreference(key = \"a_boolean\")\n"
+                + "    abstract boolean aBoolean();\n"
+                + "    abstract boolean save(SharedPreferences sharedPreferences, WriteChangesTest old);\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_WriteChangesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Boolean;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_WriteChangesTest extends $AutoValue_WriteChangesTest {\n"
+                + "  AutoValue_WriteChangesTest(boolean aBoolean) {\n"
+                + "    super(aBoolean);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_WriteChangesTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    boolean aBoolean = sharedPreferences.getBoolean(\"a_boolean\", false);\n"
+                + "    return new AutoValue_WriteChangesTest(aBoolean);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_WriteChangesTest createFromMap(Map<String, ?> map) {\n"
+                + "    Boolean $value0 = (Boolean) map.get(\"a_boolean\");\n"
+                + "    boolean aBoolean = $value0 != null ? $value0 : false;\n"
+                + "    return new AutoValue_WriteChangesTest(aBoolean);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  boolean save(SharedPreferences sharedPreferences, WriteChangesTest old) {\n"
+                + "    SharedPreferences.Editor editor = sharedPreferences.edit();\n"
+                + "    boolean changed = false;\n"
+                + "    if (old == null || aBoolean() != old.aBoolean()) {\n"
+                + "      editor.putBoolean(\"a_boolean\", aBoolean());\n"
+                + "      changed = true;\n"
+                + "    }\n"
+                + "    if (changed) {\n"
+                + "      editor.apply();\n"
+                + "    }\n"
+                + "    return changed;\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void writeChangesIgnoresConcreteMethods() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.ChangesTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "public abstract class ChangesTest {\n"
+                + "    @SharedPreference(key = \"k\")\n"
+                + "    abstract int k();\n"
+                + "    boolean isDirty(SharedPreferences.Editor editor, ChangesTest previous) {\n"
+                + "        return false;\n"
+                + "    }\n"
+                + "    void log(SharedPreferences sharedPreferences, ChangesTest previous) {\n"
+                + "    }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void cachedSharedPreferences() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.CachedTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.CachedSharedPreferences;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "@CachedSharedPreferences\n"
+                + "public abstract class CachedTest {\n"
+                + "    @SharedPreference(key = \"a_boolean\", defaultValue = \"true\")\n"
+                + "    abstract boolean aBoolean();\n"
+                + "    @SharedPreference(key = \"an_int\")\n"
+                + "    abstract int anInt();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_CachedTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Boolean;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Arrays;\n"
+                + "import java.util.Collections;\n"
+                + "import java.util.HashSet;\n"
+                + "import java.util.Map;\n"
+                + "import java.util.Set;\n"
+                + "import java.util.concurrent.atomic.AtomicReference;\n"
+                + "\n"
+                + "final class AutoValue_CachedTest extends $AutoValue_CachedTest {\n"
+                + "  public static final Set<String> KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(\"a_boolean\", \"an_int\")));\n"
+                + "\n"
+                + "  AutoValue_CachedTest(boolean aBoolean, int anInt) {\n"
+                + "    super(aBoolean, anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_CachedTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    boolean aBoolean = sharedPreferences.getBoolean(\"a_boolean\", true);\n"
+                + "    int anInt = sharedPreferences.getInt(\"an_int\", 0);\n"
+                + "    return new AutoValue_CachedTest(aBoolean, anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_CachedTest createFromMap(Map<String, ?> map) {\n"
+                + "    Boolean $value0 = (Boolean) map.get(\"a_boolean\");\n"
+                + "    boolean aBoolean = $value0 != null ? $value0 : true;\n"
+                + "    Integer $value1 = (Integer) map.get(\"an_int\");\n"
+                + "    int anInt = $value1 != null ? $value1 : 0;\n"
+                + "    return new AutoValue_CachedTest(aBoolean, anInt);\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class Cache implements SharedPreferences.OnSharedPreferenceChangeListener {\n"
+                + "    private final SharedPreferences sharedPreferences;\n"
+                + "    private final AtomicReference<AutoValue_CachedTest> snapshot = new AtomicReference<>();\n"
+                + "    private Cache(SharedPreferences sharedPreferences) {\n"
+                + "      this.sharedPreferences = sharedPreferences;\n"
+                + "    }\n"
+                + "    static Cache of(SharedPreferences sharedPreferences) {\n"
+                + "      Cache cache = new Cache(sharedPreferences);\n"
+                + "      sharedPreferences.registerOnSharedPreferenceChangeListener(cache);\n"
+                + "      cache.snapshot.compareAndSet(null, createFromSharedPreferences(sharedPreferences));\n"
+                + "      return cache;\n"
+                + "    }\n"
+                + "    AutoValue_CachedTest get() {\n"
+                + "      return snapshot.get();\n"
+                + "    }\n"
+                + "    void close() {\n"
+                + "      sharedPreferences.unregisterOnSharedPreferenceChangeListener(this);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {\n"
+                + "      if (key == null || KEYS.contains(key)) {\n"
+                + "        snapshot.set(createFromSharedPreferences(sharedPreferences));\n"
+                + "      }\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void lazySharedPreferences() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.LazyTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.LazySharedPreferences;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "@LazySharedPreferences\n"
+                + "public abstract class LazyTest {\n"
+                + "    @SharedPreference(key = \"an_int\", defaultValue = \"8964\")\n"
+                + "    abstract Integer anInt();\n"
+                + "    @SharedPreference(key = \"a_string\")\n"
+                + "    abstract String aString();\n"
+                + "    abstract long notAnnotated();\n"
+                + "    abstract void writeToSharedPreferences(SharedPreferences sharedPreferences);\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_LazyTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_LazyTest extends $AutoValue_LazyTest {\n"
+                + "  AutoValue_LazyTest(Integer anInt, String aString, long notAnnotated) {\n"
+                + "    super(anInt, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_LazyTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    int anInt = sharedPreferences.getInt(\"an_int\", 8964);\n"
+                + "    String aString = sharedPreferences.getString(\"a_string\", \"\");\n"
+                + "    long notAnnotated = 0L;\n"
+                + "    return new AutoValue_LazyTest(anInt, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_LazyTest createFromMap(Map<String, ?> map) {\n"
+                + "    Integer $value0 = (Integer) map.get(\"an_int\");\n"
+                + "    int anInt = $value0 != null ? $value0 : 8964;\n"
+                + "    String $value1 = (String) map.get(\"a_string\");\n"
+                + "    String aString = $value1 != null ? $value1 : \"\";\n"
+                + "    long notAnnotated = 0L;\n"
+                + "    return new AutoValue_LazyTest(anInt, aString, notAnnotated);\n"
+                + "  }\n"
+                + "\n"
+                + "  @Override\n"
+                + "  void writeToSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    SharedPreferences.Editor editor = sharedPreferences.edit();\n"
+                + "    editor.putInt(\"an_int\", anInt());\n"
+                + "    editor.putString(\"a_string\", aString());\n"
+                + "    editor.apply();\n"
+                + "  }\n"
+                + "\n"
+                + "  static LazyTest lazyFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    return new Lazy(sharedPreferences);\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class Lazy extends LazyTest {\n"
+                + "    private final SharedPreferences $sharedPreferences;\n"
+                + "    private volatile boolean $loaded0;\n"
+                + "    private int $value0;\n"
+                + "    private volatile boolean $loaded1;\n"
+                + "    private String $value1;\n"
+                + "    private volatile AutoValue_LazyTest $snapshot;\n"
+                + "    private Lazy(SharedPreferences sharedPreferences) {\n"
+                + "      this.$sharedPreferences = sharedPreferences;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    Integer anInt() {\n"
+                + "      if (!$loaded0) {\n"
+                + "        $value0 = $sharedPreferences.getInt(\"an_int\", 8964);\n"
+                + "        $loaded0 = true;\n"
+                + "      }\n"
+                + "      return $value0;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    String aString() {\n"
+                + "      if (!$loaded1) {\n"
+                + "        $value1 = $sharedPreferences.getString(\"a_string\", \"\");\n"
+                + "        $loaded1 = true;\n"
+                + "      }\n"
+                + "      return $value1;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    long notAnnotated() {\n"
+                + "      return 0L;\n"
+                + "    }\n"
+                + "    private AutoValue_LazyTest $snapshot() {\n"
+                + "      AutoValue_LazyTest value = $snapshot;\n"
+                + "      if (value == null) {\n"
+                + "        value = new AutoValue_LazyTest(anInt(), aString(), notAnnotated());\n"
+                + "        $snapshot = value;\n"
+                + "      }\n"
+                + "      return value;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    void writeToSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "      $snapshot().writeToSharedPreferences(sharedPreferences);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean equals(Object o) {\n"
+                + "      return $snapshot().equals(o);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int hashCode() {\n"
+                + "      return $snapshot().hashCode();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String toString() {\n"
+                + "      return $snapshot().toString();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
+
+    @Test
+    public void lazySharedPreferencesNameCollision() {
+        final JavaFileObject source = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.LazyCollisionTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "import com.google.auto.value.AutoValue;\n"
+                + "import net.zionsoft.auto.droid.LazySharedPreferences;\n"
+                + "import net.zionsoft.auto.droid.SharedPreference;\n"
+                + "@AutoValue\n"
+                + "@LazySharedPreferences\n"
+                + "public abstract class LazyCollisionTest {\n"
+                + "    @SharedPreference(key = \"snapshot\")\n"
+                + "    abstract String snapshot();\n"
+                + "    @SharedPreference(key = \"foo\")\n"
+                + "    abstract int foo();\n"
+                + "    @SharedPreference(key = \"foo_loaded\")\n"
+                + "    abstract boolean fooLoaded();\n"
+                + "}\n");
+
+        final JavaFileObject expected = JavaFileObjects.forSourceString("net.zionsoft.auto.droid.test.AutoValue_LazyCollisionTest", ""
+                + "package net.zionsoft.auto.droid.test;\n"
+                + "\n"
+                + "import android.content.SharedPreferences;\n"
+                + "import java.lang.Boolean;\n"
+                + "import java.lang.Integer;\n"
+                + "import java.lang.Object;\n"
+                + "import java.lang.Override;\n"
+                + "import java.lang.String;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "final class AutoValue_LazyCollisionTest extends $AutoValue_LazyCollisionTest {\n"
+                + "  AutoValue_LazyCollisionTest(String snapshot, int foo, boolean fooLoaded) {\n"
+                + "    super(snapshot, foo, fooLoaded);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_LazyCollisionTest createFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    String snapshot = sharedPreferences.getString(\"snapshot\", \"\");\n"
+                + "    int foo = sharedPreferences.getInt(\"foo\", 0);\n"
+                + "    boolean fooLoaded = sharedPreferences.getBoolean(\"foo_loaded\", false);\n"
+                + "    return new AutoValue_LazyCollisionTest(snapshot, foo, fooLoaded);\n"
+                + "  }\n"
+                + "\n"
+                + "  static AutoValue_LazyCollisionTest createFromMap(Map<String, ?> map) {\n"
+                + "    String $value0 = (String) map.get(\"snapshot\");\n"
+                + "    String snapshot = $value0 != null ? $value0 : \"\";\n"
+                + "    Integer $value1 = (Integer) map.get(\"foo\");\n"
+                + "    int foo = $value1 != null ? $value1 : 0;\n"
+                + "    Boolean $value2 = (Boolean) map.get(\"foo_loaded\");\n"
+                + "    boolean fooLoaded = $value2 != null ? $value2 : false;\n"
+                + "    return new AutoValue_LazyCollisionTest(snapshot, foo, fooLoaded);\n"
+                + "  }\n"
+                + "\n"
+                + "  static LazyCollisionTest lazyFromSharedPreferences(SharedPreferences sharedPreferences) {\n"
+                + "    return new Lazy(sharedPreferences);\n"
+                + "  }\n"
+                + "\n"
+                + "  static final class Lazy extends LazyCollisionTest {\n"
+                + "    private final SharedPreferences $sharedPreferences;\n"
+                + "    private volatile boolean $loaded0;\n"
+                + "    private String $value0;\n"
+                + "    private volatile boolean $loaded1;\n"
+                + "    private int $value1;\n"
+                + "    private volatile boolean $loaded2;\n"
+                + "    private boolean $value2;\n"
+                + "    private volatile AutoValue_LazyCollisionTest $snapshot;\n"
+                + "    private Lazy(SharedPreferences sharedPreferences) {\n"
+                + "      this.$sharedPreferences = sharedPreferences;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    String snapshot() {\n"
+                + "      if (!$loaded0) {\n"
+                + "        $value0 = $sharedPreferences.getString(\"snapshot\", \"\");\n"
+                + "        $loaded0 = true;\n"
+                + "      }\n"
+                + "      return $value0;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    int foo() {\n"
+                + "      if (!$loaded1) {\n"
+                + "        $value1 = $sharedPreferences.getInt(\"foo\", 0);\n"
+                + "        $loaded1 = true;\n"
+                + "      }\n"
+                + "      return $value1;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    boolean fooLoaded() {\n"
+                + "      if (!$loaded2) {\n"
+                + "        $value2 = $sharedPreferences.getBoolean(\"foo_loaded\", false);\n"
+                + "        $loaded2 = true;\n"
+                + "      }\n"
+                + "      return $value2;\n"
+                + "    }\n"
+                + "    private AutoValue_LazyCollisionTest $snapshot() {\n"
+                + "      AutoValue_LazyCollisionTest value = $snapshot;\n"
+                + "      if (value == null) {\n"
+                + "        value = new AutoValue_LazyCollisionTest(snapshot(), foo(), fooLoaded());\n"
+                + "        $snapshot = value;\n"
+                + "      }\n"
+                + "      return value;\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public boolean equals(Object o) {\n"
+                + "      return $snapshot().equals(o);\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public int hashCode() {\n"
+                + "      return $snapshot().hashCode();\n"
+                + "    }\n"
+                + "    @Override\n"
+                + "    public String toString() {\n"
+                + "      return $snapshot().toString();\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n");
+
+        Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+                .that(Collections.singletonList(source))
+                .processedWith(new AutoValueProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expected);
+    }
 }